@@ -0,0 +1,15 @@
+#!/bin/bash
+# Реплика только для чтения: при пустом каталоге данных копирует основную БД
+# через pg_basebackup и запускается как hot standby
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until pg_basebackup -h "$PRIMARY_HOST" -U "$REPLICATION_USER" -D "$PGDATA" -R -X stream; do
+        echo "Основная БД недоступна, повтор через 2 секунды"
+        rm -rf "${PGDATA:?}"/*
+        sleep 2
+    done
+    chmod 0700 "$PGDATA"
+fi
+
+exec postgres -c hot_standby=on
@@ -0,0 +1,52 @@
+// Нагрузочный тест чтения списка карт: сравнение платформенных и виртуальных потоков.
+//
+// Приложение на платформенных потоках:
+//   mvn spring-boot:run
+// на виртуальных (Java 21):
+//   mvn -Pjava21 spring-boot:run -Dspring-boot.run.profiles=virtual
+//
+// Запуск (1000 и 10000 одновременных клиентов):
+//   k6 run -e VUS=1000 load/card-listing.js
+//   k6 run -e VUS=10000 -e BASE_URL=http://localhost:8080 load/card-listing.js
+//
+// Сравниваются http_reqs (пропускная способность), http_req_duration p(95)
+// и доля ответов 503 (отказ по очереди за соединениями с БД).
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERNAME = __ENV.USERNAME || 'user';
+const PASSWORD = __ENV.PASSWORD || 'secret';
+const USER_ID = __ENV.USER_ID || '2';
+const VUS = parseInt(__ENV.VUS || '1000');
+
+const shed = new Counter('shed_503');
+
+export const options = {
+    scenarios: {
+        listing: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/auth/login`,
+        JSON.stringify({ username: USERNAME, password: PASSWORD }),
+        { headers: { 'Content-Type': 'application/json' } });
+    check(res, { 'login 200': (r) => r.status === 200 });
+    return { token: res.json('token') };
+}
+
+export default function (data) {
+    const res = http.get(`${BASE_URL}/api/users/${USER_ID}/cards/slice?size=20`,
+        { headers: { Authorization: `Bearer ${data.token}` } });
+    if (res.status === 503) {
+        shed.add(1);
+    }
+    check(res, { 'status 200': (r) => r.status === 200 });
+}
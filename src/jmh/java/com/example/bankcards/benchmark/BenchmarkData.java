@@ -0,0 +1,15 @@
+package com.example.bankcards.benchmark;
+
+/**
+ * Общие входные данные бенчмарков
+ */
+final class BenchmarkData {
+
+    static final String CRYPTO_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    static final String JWT_SECRET = "bXktdmVyeS1sb25nLXN1cGVyLXNlY3JldC1rZXktMzItYnl0ZXM=";
+    static final String CARD_NUMBER = "4111111111111111";
+    static final String FORMATTED_CARD_NUMBER = "4111 1111 1111 1111";
+
+    private BenchmarkData() {
+    }
+}
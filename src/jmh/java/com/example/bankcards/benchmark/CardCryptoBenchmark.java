@@ -0,0 +1,38 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.CardCrypto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шифрование и расшифровка номера карты. Расшифровка выполняется для каждой
+ * карты в ответах со списками карт
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardCryptoBenchmark {
+
+    private CardCrypto cardCrypto;
+    private String stored;
+
+    @Setup
+    public void setUp() {
+        cardCrypto = new CardCrypto(BenchmarkData.CRYPTO_KEY);
+        stored = cardCrypto.encrypt(BenchmarkData.CARD_NUMBER);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return cardCrypto.encrypt(BenchmarkData.CARD_NUMBER);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return cardCrypto.decrypt(stored);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация карт в JSON: одна карта и страница из 20 карт
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardDtoJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CardDto card;
+    private List<CardDto> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        card = new CardDto(1L, 2L, "**** **** **** 1111", CardStatus.ACTIVE, new BigDecimal("1500.50"));
+        page = new ArrayList<>();
+        for (long i = 0; i < 20; i++) {
+            page.add(new CardDto(i, 2L, "**** **** **** 1111", CardStatus.ACTIVE, BigDecimal.valueOf(150050 + i, 2)));
+        }
+    }
+
+    @Benchmark
+    public byte[] single() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(card);
+    }
+
+    @Benchmark
+    public byte[] page() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
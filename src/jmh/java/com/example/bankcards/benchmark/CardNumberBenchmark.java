@@ -0,0 +1,32 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.CardMasker;
+import com.example.bankcards.util.Luhn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маскирование и проверка номера карты алгоритмом Луна
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardNumberBenchmark {
+
+    @Param({BenchmarkData.CARD_NUMBER, BenchmarkData.FORMATTED_CARD_NUMBER})
+    public String number;
+
+    @Benchmark
+    public String mask() {
+        return CardMasker.mask(number);
+    }
+
+    @Benchmark
+    public boolean luhnIsValid() {
+        return Luhn.isValid(number);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск токена при входе и разбор токена в фильтре на каждом запросе:
+ * повторный токен из кеша проверенных и проверка подписи без кеша
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private final AuthenticatedUser user = new AuthenticatedUser(2L, "user", "", Role.USER, 0);
+    private JwtService jwtService;
+    private JwtService uncachedJwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(BenchmarkData.JWT_SECRET, 60, 10_000);
+        uncachedJwtService = new JwtService(BenchmarkData.JWT_SECRET, 60, 0);
+        token = jwtService.generate(user);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtService.generate(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractUsernameUncached() {
+        return uncachedJwtService.extractUsername(token);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.bankcards.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.example.bankcards.dto.TransferDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Задержка перевода, которую добавляет журнал: запрос записывает строки отладки
+ * сервиса и {@value #STATEMENTS} отформатированных SQL-запроса, как с
+ * {@code org.hibernate.SQL: DEBUG}. Сравниваются синхронная запись, запись через
+ * AsyncAppender (как в logback-spring.xml) и выключенный DEBUG. При заполнении
+ * очереди AsyncAppender отбрасывает события DEBUG, как и в приложении.
+ * <p>
+ * Консоль моделируется потоком, запись в который занимает {@code writeMicros}:
+ * 0 - консоль успевает за приложением, 100 - сборщик логов отстаёт и запись
+ * в stdout ждёт
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final int STATEMENTS = 4;
+    private static final String PATTERN =
+            "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n";
+    private static final String SQL = """
+
+                select
+                    c1_0.id,
+                    c1_0.balance,
+                    c1_0.balance_shards,
+                    c1_0.card_number,
+                    c1_0.expiration_date,
+                    c1_0.last4,
+                    c1_0.owner_id,
+                    c1_0.status,
+                    c1_0.version\s
+                from
+                    cards c1_0\s
+                where
+                    c1_0.id=? for no key update""";
+
+    public enum Output {
+        SYNC, ASYNC, DEBUG_OFF
+    }
+
+    @Param({"SYNC", "ASYNC", "DEBUG_OFF"})
+    public Output output;
+
+    /**
+     * Время записи одной строки в консоль; больше нуля, когда сборщик логов
+     * не успевает вычитывать stdout
+     */
+    @Param({"0", "100"})
+    public long writeMicros;
+
+    private final TransferDto dto = new TransferDto(1L, 2L, new BigDecimal("10.00"));
+    private LoggerContext context;
+    private Logger serviceLog;
+    private Logger sqlLog;
+
+    @Setup
+    public void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        var encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        var console = new OutputStreamAppender<ILoggingEvent>();
+        console.setContext(context);
+        console.setName("CONSOLE");
+        console.setOutputStream(new SlowOutputStream(TimeUnit.MICROSECONDS.toNanos(writeMicros)));
+        console.setEncoder(encoder);
+        console.start();
+
+        Appender<ILoggingEvent> appender = console;
+        if (output == Output.ASYNC) {
+            var async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC");
+            async.setQueueSize(8192);
+            async.addAppender(console);
+            async.start();
+            appender = async;
+        }
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(output == Output.DEBUG_OFF ? Level.INFO : Level.DEBUG);
+        root.addAppender(appender);
+        serviceLog = context.getLogger("com.example.bankcards.service.impl.CardServiceImpl");
+        sqlLog = context.getLogger("org.hibernate.SQL");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void transfer() {
+        if (serviceLog.isDebugEnabled()) {
+            serviceLog.debug("Запрос на перевод средств от пользователя {}: карта {} -> карта {}",
+                    2L, dto.fromCardId(), dto.toCardId());
+        }
+        for (int i = 0; i < STATEMENTS; i++) {
+            sqlLog.debug(SQL);
+        }
+        serviceLog.debug("Перевод выполнен");
+    }
+
+    /**
+     * Прежняя строка отладки: перевод целиком через {@code toString}
+     */
+    @Benchmark
+    public void transferWithDtoToString() {
+        serviceLog.debug("Запрос на перевод средств от пользователя: {}, {}", 2L, dto);
+        for (int i = 0; i < STATEMENTS; i++) {
+            sqlLog.debug(SQL);
+        }
+        serviceLog.debug("Перевод выполнен");
+    }
+
+    /**
+     * Консоль: запись уходит в никуда, но каждая строка задерживает пишущий поток
+     * на заданное время
+     */
+    private static final class SlowOutputStream extends OutputStream {
+
+        private final long writeNanos;
+
+        private SlowOutputStream(long writeNanos) {
+            this.writeNanos = writeNanos;
+        }
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (writeNanos > 0) {
+                LockSupport.parkNanos(writeNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Отдельный пул для проверки паролей при входе.
+ * <p>
+ * Хеширование пароля занимает процессор на десятки миллисекунд, и при массовом
+ * входе оно занимало бы все потоки Tomcat. Пул и очередь ограничены: вход,
+ * не поместившийся в очередь, сразу отклоняется с 429
+ */
+@Configuration
+public class LoginExecutorConfig {
+
+    @Bean(name = "loginExecutor")
+    public ThreadPoolTaskExecutor loginExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.login.threads:4}") int threads,
+            @Value("${app.security.login.queue-capacity:100}") int queueCapacity) {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("login-");
+        executor.initialize();
+        Gauge.builder("bank.auth.login.queue.size", executor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Входы, ожидающие проверки пароля")
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -1,15 +1,45 @@
 package com.example.bankcards.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 
+import java.util.Map;
+
+/**
+ * Кодирование паролей.
+ * <p>
+ * Новые пароли кодируются алгоритмом {@code app.security.password.encoder}
+ * и хранятся с префиксом алгоритма ({@code {bcrypt}...}). Хеши без префикса,
+ * сохранённые ранее, проверяются как BCrypt. Хеш, закодированный другим алгоритмом
+ * или с меньшей стоимостью BCrypt, пересчитывается при успешном входе пользователя
+ */
 @Configuration
 public class PasswordEncoderConfig {
 
+    private static final String BCRYPT = "bcrypt";
+    private static final String PBKDF2 = "pbkdf2@SpringSecurity_v5_8";
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.password.encoder:bcrypt}") String encoder,
+            @Value("${app.security.password.bcrypt-strength:10}") int bcryptStrength) {
+        var bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                BCRYPT, bcrypt,
+                PBKDF2, Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        String idForEncode = "pbkdf2".equals(encoder) ? PBKDF2 : encoder;
+        if (!encoders.containsKey(idForEncode)) {
+            throw new IllegalStateException("Неизвестный алгоритм паролей app.security.password.encoder: " + encoder);
+        }
+        var delegating = new DelegatingPasswordEncoder(idForEncode, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new TimedPasswordEncoder(delegating, meterRegistry);
     }
 }
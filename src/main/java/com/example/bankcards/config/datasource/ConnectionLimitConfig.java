@@ -0,0 +1,39 @@
+package com.example.bankcards.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Ограничение соединений с БД ({@link ConnectionLimitingDataSource}). Включается
+ * в профиле virtual. Без реплик оборачивается пул {@code dataSource}; с репликами
+ * {@link ReadReplicaConfig} оборачивает пул основной БД и пул каждой реплики
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.connection-limit", name = "enabled", havingValue = "true")
+public class ConnectionLimitConfig {
+
+    @Bean
+    public ConnectionLimiter connectionLimiter(
+            @Value("${app.datasource.connection-limit.max-waiters:200}") int maxWaiters,
+            @Value("${app.datasource.connection-limit.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        return new ConnectionLimiter(maxWaiters, acquireTimeoutMs);
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimitPostProcessor(ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof HikariDataSource pool)) {
+                    return bean;
+                }
+                return connectionLimiter.getObject().limit(pool);
+            }
+        };
+    }
+}
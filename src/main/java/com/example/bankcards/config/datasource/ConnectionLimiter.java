@@ -0,0 +1,26 @@
+package com.example.bankcards.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает пул соединений в {@link ConnectionLimitingDataSource}: мест
+ * столько же, сколько соединений в этом пуле. С репликами оборачивается каждый
+ * пул отдельно, иначе общий лимит по размеру основного пула не совпадал бы
+ * с числом соединений, которые реально можно получить
+ */
+public class ConnectionLimiter {
+
+    private final int maxWaiters;
+    private final long acquireTimeoutMs;
+
+    public ConnectionLimiter(int maxWaiters, long acquireTimeoutMs) {
+        this.maxWaiters = maxWaiters;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public DataSource limit(HikariDataSource pool) {
+        return new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(), maxWaiters, acquireTimeoutMs);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.config.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Направляет соединения транзакций только для чтения на реплики, остальные - на основную БД.
+ * <p>
+ * Чтение остаётся на основной БД, если нет доступной реплики или пользователь
+ * недавно выполнял запись ({@link ReadYourWritesTracker}). Признак read-only
+ * выставляется Spring после начала транзакции, поэтому источник должен
+ * использоваться через {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * тогда физическое соединение берётся при первом запросе, когда признак уже известен
+ */
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaSelector replicaSelector;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ReadOnlyRoutingDataSource(ReplicaSelector replicaSelector, ReadYourWritesTracker readYourWritesTracker) {
+        this.replicaSelector = replicaSelector;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = readYourWritesTracker.currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWritesTracker.recordWriteAfterCommit(user);
+            }
+            return PRIMARY;
+        }
+        if (user != null && readYourWritesTracker.isSticky(user)) {
+            return PRIMARY;
+        }
+        ReplicaNode replica = replicaSelector.select();
+        return replica == null ? PRIMARY : replica.name();
+    }
+}
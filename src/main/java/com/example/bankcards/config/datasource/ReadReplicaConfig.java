@@ -0,0 +1,124 @@
+package com.example.bankcards.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источники данных с репликами для чтения. Включается, если задан
+ * {@code app.datasource.replica.urls} (список через запятую); без него
+ * приложение работает с одной БД из {@code spring.datasource}.
+ * <p>
+ * Транзакции {@code @Transactional(readOnly = true)} читают с доступной реплики,
+ * все остальные запросы и миграции Liquibase идут на основную БД. Если включено
+ * ограничение соединений ({@link ConnectionLimitConfig}), каждый пул ограничивается
+ * по своему размеру
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaPools replicaPools(
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${app.datasource.replica.urls}") List<String> urls,
+            @Value("${app.datasource.replica.username:}") String username,
+            @Value("${app.datasource.replica.password:}") String password,
+            @Value("${app.datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        List<ReplicaNode> nodes = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls.get(i).trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(password.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setReadOnly(true);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            nodes.add(new ReplicaNode(dataSource.getPoolName(), dataSource));
+        }
+        return new ReplicaPools(nodes);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(
+            @Value("${app.datasource.replica.sticky-window-ms:5000}") long stickyWindowMs) {
+        return new ReadYourWritesTracker(Duration.ofMillis(stickyWindowMs));
+    }
+
+    @Bean
+    public ReplicaHealthChecker replicaHealthChecker(
+            ReplicaPools replicaPools,
+            ReadYourWritesTracker readYourWritesTracker,
+            MeterRegistry meterRegistry,
+            @Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMs) {
+        return new ReplicaHealthChecker(replicaPools.nodes(), readYourWritesTracker, maxLagMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            HikariDataSource primaryDataSource,
+            ReplicaPools replicaPools,
+            ReadYourWritesTracker readYourWritesTracker,
+            ObjectProvider<ConnectionLimiter> connectionLimiter,
+            @Value("${app.datasource.replica.balancing:ROUND_ROBIN}") ReplicaBalancing balancing) {
+        ConnectionLimiter limiter = connectionLimiter.getIfAvailable();
+        DataSource primary = limited(limiter, primaryDataSource);
+        var routing = new ReadOnlyRoutingDataSource(
+                new ReplicaSelector(replicaPools.nodes(), balancing), readYourWritesTracker);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadOnlyRoutingDataSource.PRIMARY, primary);
+        replicaPools.nodes().forEach(node ->
+                targets.put(node.name(), limited(limiter, (HikariDataSource) node.dataSource())));
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static DataSource limited(ConnectionLimiter limiter, HikariDataSource pool) {
+        return limiter == null ? pool : limiter.limit(pool);
+    }
+
+    /**
+     * Пулы соединений реплик; закрываются вместе с контекстом
+     */
+    public record ReplicaPools(List<ReplicaNode> nodes) {
+
+        public void close() {
+            nodes.forEach(node -> ((HikariDataSource) node.dataSource()).close());
+        }
+    }
+}
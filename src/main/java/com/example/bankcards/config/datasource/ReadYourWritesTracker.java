@@ -0,0 +1,77 @@
+package com.example.bankcards.config.datasource;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запоминает пользователей, недавно изменявших данные. В течение окна после
+ * фиксации их транзакции на запись чтения идут на основную БД, чтобы
+ * пользователь не увидел собственные изменения ещё не доехавшими до реплики
+ */
+public class ReadYourWritesTracker {
+
+    private final long windowNanos;
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Имя аутентифицированного пользователя текущего запроса
+     *
+     * @return имя или {@code null} вне пользовательского запроса
+     */
+    public String currentUser() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Отмечает запись пользователя после фиксации текущей транзакции
+     */
+    public void recordWriteAfterCommit(String user) {
+        if (windowNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stickyUntil.put(user, System.nanoTime() + windowNanos);
+            }
+        });
+    }
+
+    /**
+     * Должны ли чтения пользователя идти на основную БД
+     */
+    public boolean isSticky(String user) {
+        Long until = stickyUntil.get(user);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        stickyUntil.remove(user, until);
+        return false;
+    }
+
+    /**
+     * Удаляет истёкшие отметки пользователей, которые больше не читали
+     */
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        stickyUntil.values().removeIf(until -> until - now <= 0);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.config.datasource;
+
+/**
+ * Способ выбора реплики для чтения
+ */
+public enum ReplicaBalancing {
+
+    /**
+     * Доступные реплики по очереди
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Доступная реплика с наименьшим временем ответа на проверку состояния
+     */
+    LEAST_LATENCY
+}
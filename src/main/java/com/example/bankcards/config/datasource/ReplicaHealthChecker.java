@@ -0,0 +1,87 @@
+package com.example.bankcards.config.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Фоновая проверка реплик: доступность, отставание репликации и время ответа.
+ * Реплика с отставанием больше допустимого исключается из чтения до следующей проверки
+ */
+public class ReplicaHealthChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthChecker.class);
+
+    /**
+     * Отставание в миллисекундах. Если вся полученная WAL уже применена, реплика
+     * не отстаёт, даже когда на основной БД давно не было транзакций
+     */
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END
+            """;
+    private static final int QUERY_TIMEOUT_SECONDS = 2;
+
+    private final List<ReplicaNode> nodes;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final long maxLagMillis;
+
+    public ReplicaHealthChecker(List<ReplicaNode> nodes, ReadYourWritesTracker readYourWritesTracker,
+                                long maxLagMillis, MeterRegistry meterRegistry) {
+        this.nodes = List.copyOf(nodes);
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.maxLagMillis = maxLagMillis;
+        for (ReplicaNode node : nodes) {
+            Gauge.builder("bank.datasource.replica.available", node, n -> n.isAvailable() ? 1 : 0)
+                    .tag("replica", node.name())
+                    .register(meterRegistry);
+            Gauge.builder("bank.datasource.replica.lag", node, ReplicaNode::lagMillis)
+                    .tag("replica", node.name())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval-ms:5000}")
+    public void check() {
+        nodes.forEach(this::check);
+        readYourWritesTracker.purgeExpired();
+    }
+
+    void check(ReplicaNode node) {
+        boolean wasAvailable = node.isAvailable();
+        long started = System.nanoTime();
+        try (Connection con = node.dataSource().getConnection();
+             Statement st = con.createStatement()) {
+            st.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            long lagMillis;
+            try (ResultSet rs = st.executeQuery(LAG_SQL)) {
+                rs.next();
+                lagMillis = rs.getLong(1);
+            }
+            long latencyMicros = (System.nanoTime() - started) / 1_000;
+            boolean available = lagMillis <= maxLagMillis;
+            node.update(available, lagMillis, latencyMicros);
+            if (wasAvailable && !available) {
+                log.warn("Реплика {} исключена из чтения: отставание {} мс", node.name(), lagMillis);
+            } else if (!wasAvailable && available) {
+                log.info("Реплика {} доступна для чтения, отставание {} мс", node.name(), lagMillis);
+            }
+        } catch (SQLException | RuntimeException e) {
+            node.markDown();
+            if (wasAvailable) {
+                log.warn("Реплика {} недоступна: {}", node.name(), e.getMessage());
+            }
+        }
+    }
+}
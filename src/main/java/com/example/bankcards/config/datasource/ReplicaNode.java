@@ -0,0 +1,54 @@
+package com.example.bankcards.config.datasource;
+
+import javax.sql.DataSource;
+
+/**
+ * Реплика для чтения и её последнее проверенное состояние
+ */
+public class ReplicaNode {
+
+    private final String name;
+    private final DataSource dataSource;
+    private volatile boolean available;
+    private volatile long lagMillis;
+    private volatile long latencyMicros;
+
+    public ReplicaNode(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Можно ли читать с реплики: она отвечает и отстаёт не больше допустимого.
+     * До первой проверки реплика считается недоступной
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long lagMillis() {
+        return lagMillis;
+    }
+
+    public long latencyMicros() {
+        return latencyMicros;
+    }
+
+    void update(boolean available, long lagMillis, long latencyMicros) {
+        this.lagMillis = lagMillis;
+        this.latencyMicros = latencyMicros;
+        this.available = available;
+    }
+
+    void markDown() {
+        this.available = false;
+    }
+}
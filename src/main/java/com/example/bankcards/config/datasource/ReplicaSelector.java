@@ -0,0 +1,44 @@
+package com.example.bankcards.config.datasource;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выбирает доступную реплику для очередной транзакции только для чтения
+ */
+public class ReplicaSelector {
+
+    private final List<ReplicaNode> nodes;
+    private final ReplicaBalancing balancing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaSelector(List<ReplicaNode> nodes, ReplicaBalancing balancing) {
+        this.nodes = List.copyOf(nodes);
+        this.balancing = balancing;
+    }
+
+    /**
+     * @return доступная реплика или {@code null}, если читать можно только с основной БД
+     */
+    public ReplicaNode select() {
+        return switch (balancing) {
+            case ROUND_ROBIN -> nextAvailable();
+            case LEAST_LATENCY -> nodes.stream()
+                    .filter(ReplicaNode::isAvailable)
+                    .min(Comparator.comparingLong(ReplicaNode::latencyMicros))
+                    .orElse(null);
+        };
+    }
+
+    private ReplicaNode nextAvailable() {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < nodes.size(); i++) {
+            ReplicaNode node = nodes.get(Math.floorMod(start + i, nodes.size()));
+            if (node.isAvailable()) {
+                return node;
+            }
+        }
+        return null;
+    }
+}
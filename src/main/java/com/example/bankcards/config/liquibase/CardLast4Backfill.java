@@ -0,0 +1,124 @@
+package com.example.bankcards.config.liquibase;
+
+import com.example.bankcards.util.CardCrypto;
+import com.example.bankcards.util.CardMasker;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Однократное заполнение {@code cards.last4} для уже существующих карт.
+ * <p>
+ * Номера расшифровываются один раз при миграции, пачками по {@value #BATCH_SIZE}
+ * строк (keyset по id), после чего выдача списков карт не обращается к
+ * {@link CardCrypto}. Значения без разделителя {@code iv:ct} считаются
+ * незашифрованными (тестовые данные) и берутся как есть. Строки, которые
+ * не удалось расшифровать, остаются с {@code last4 = null}
+ */
+public class CardLast4Backfill implements CustomTaskChange {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLast4Backfill.class);
+    private static final int BATCH_SIZE = 500;
+
+    private String cryptoKey;
+    private int updated;
+    private int skipped;
+
+    public String getCryptoKey() {
+        return cryptoKey;
+    }
+
+    public void setCryptoKey(String cryptoKey) {
+        this.cryptoKey = cryptoKey;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        var crypto = new CardCrypto(cryptoKey);
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, card_number FROM cards WHERE last4 IS NULL AND id > ? ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE cards SET last4 = ? WHERE id = ?")) {
+            long afterId = 0;
+            int rows;
+            do {
+                rows = 0;
+                select.setLong(1, afterId);
+                select.setInt(2, BATCH_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        afterId = rs.getLong(1);
+                        String last4 = last4(crypto, rs.getString(2));
+                        if (last4 == null) {
+                            skipped++;
+                            continue;
+                        }
+                        update.setString(1, last4);
+                        update.setLong(2, afterId);
+                        update.addBatch();
+                        updated++;
+                    }
+                }
+                update.executeBatch();
+            } while (rows == BATCH_SIZE);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Не удалось заполнить cards.last4", e);
+        }
+        if (skipped > 0) {
+            log.warn("Не удалось получить последние цифры номера для {} карт", skipped);
+        }
+    }
+
+    /**
+     * Последние четыре цифры хранимого номера
+     *
+     * @return цифры или {@code null}, если номер не расшифровывается
+     */
+    static String last4(CardCrypto crypto, String stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (stored.indexOf(':') < 0) {
+            return CardMasker.last4(stored);
+        }
+        try {
+            return CardMasker.last4(crypto.decrypt(stored));
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "cards.last4 заполнено для " + updated + " карт, пропущено " + skipped;
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        var errors = new ValidationErrors();
+        if (cryptoKey == null || cryptoKey.isBlank() || cryptoKey.startsWith("${")) {
+            errors.addError("Не задан параметр cryptoKey (spring.liquibase.parameters.cardCryptoKey)");
+        }
+        return errors;
+    }
+}
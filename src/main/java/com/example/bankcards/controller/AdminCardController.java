@@ -1,11 +1,19 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkCardIssueResultDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardExportFormat;
 import com.example.bankcards.dto.CreateCardDto;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.CardIssueService;
 import com.example.bankcards.service.CardService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -16,9 +24,15 @@ import java.util.List;
 public class AdminCardController {
 
     private final CardService cardService;
+    private final CardExportService cardExportService;
+    private final CardIssueService cardIssueService;
 
-    public AdminCardController(CardService cardService) {
+    public AdminCardController(CardService cardService,
+                               CardExportService cardExportService,
+                               CardIssueService cardIssueService) {
         this.cardService = cardService;
+        this.cardExportService = cardExportService;
+        this.cardIssueService = cardIssueService;
     }
 
     @GetMapping
@@ -28,6 +42,18 @@ public class AdminCardController {
         return cardService.getAllCards();
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "Выгрузить все карты",
+            description = "Потоково выгружает все карты в формате NDJSON или CSV, " +
+                    "не загружая их в память целиком")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "NDJSON") CardExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cards." + format.extension())
+                .body(out -> cardExportService.export(format, out));
+    }
+
     @PostMapping
     @Operation(summary = "Создать новую карту",
             description = "Создаёт новую банковскую карту для пользователя")
@@ -35,6 +61,14 @@ public class AdminCardController {
         return cardService.createCard(cardDto);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Выпустить пакет карт",
+            description = "Выпускает до нескольких тысяч карт за один запрос. Карты с некорректным " +
+                    "номером или несуществующим владельцем отклоняются, остальные сохраняются в одной транзакции")
+    public BulkCardIssueResultDto createBulk(@RequestBody List<CreateCardDto> cards) {
+        return cardIssueService.issue(cards);
+    }
+
     @PatchMapping("/{id}/block")
     @Operation(summary = "Заблокировать карту",
             description = "Блокирует карту по ID")
@@ -48,6 +82,16 @@ public class AdminCardController {
         return cardService.activateCard(id);
     }
 
+    @PatchMapping("/{id}/hot")
+    @Operation(summary = "Изменить режим горячей карты",
+            description = "Распределяет баланс карты по шардам, чтобы частые зачисления " +
+                    "не выстраивались в очередь на одной строке; enabled=false возвращает обычный режим")
+    public CardDto hot(@PathVariable Long id,
+                       @RequestParam boolean enabled,
+                       @RequestParam(defaultValue = "16") int shards) {
+        return cardService.setHot(id, enabled, shards);
+    }
+
     @DeleteMapping("/{id}/delete")
     @Operation(summary = "Удалить карту", description = "Удаляет карту по ID")
     public void delete(@PathVariable Long id) {
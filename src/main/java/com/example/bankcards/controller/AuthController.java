@@ -2,32 +2,26 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.LoginRequest;
 import com.example.bankcards.dto.LoginResponse;
-import com.example.bankcards.security.JwtService;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import com.example.bankcards.security.LoginService;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
-    private final AuthenticationManager authManager;
-    private final JwtService jwt;
+    private final LoginService loginService;
 
-    public AuthController(AuthenticationManager authManager, JwtService jwt) {
-        this.authManager = authManager;
-        this.jwt = jwt;
+    public AuthController(LoginService loginService) {
+        this.loginService = loginService;
     }
 
     @PostMapping("/login")
-    public LoginResponse login(@RequestBody LoginRequest req) {
-        Authentication auth = authManager.authenticate(
-                new UsernamePasswordAuthenticationToken(req.username(), req.password()));
-        String token = jwt.generate(auth.getName());
-        return new LoginResponse(token);
+    public CompletableFuture<LoginResponse> login(@RequestBody LoginRequest req) {
+        return loginService.login(req.username(), req.password()).thenApply(LoginResponse::new);
     }
 }
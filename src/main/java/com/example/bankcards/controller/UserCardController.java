@@ -1,6 +1,9 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResultDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSliceDto;
 import com.example.bankcards.dto.TransferDto;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.service.CardService;
@@ -8,13 +11,19 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/users/{userId}/cards")
 @Tag(name = "Карты пользователя", description = "API для управления картами конкретного пользователя")
 public class UserCardController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final CardService cardService;
 
     public UserCardController(CardService cardService) {
@@ -24,9 +33,31 @@ public class UserCardController {
     @PostMapping("/transfer")
     @Operation(summary = "Выполнить перевод средств",
             description = "Перевод денег между картами текущего пользователя" +
-                    "обе карты должны принадлежать пользователю и быть активными")
-    public void transfer(@PathVariable Long userId, @RequestBody TransferDto dto) {
-        cardService.transfer(userId, dto);
+                    "обе карты должны принадлежать пользователю и быть активными. " +
+                    "С заголовком Idempotency-Key повтор запроса не выполняет перевод заново " +
+                    "и возвращает заголовок Idempotent-Replayed: true")
+    public ResponseEntity<Void> transfer(
+            @PathVariable Long userId,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody TransferDto dto) {
+        if (idempotencyKey == null) {
+            cardService.transfer(userId, dto);
+            return ResponseEntity.ok().build();
+        }
+        boolean executed = cardService.transfer(userId, dto, idempotencyKey);
+        return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(!executed)).build();
+    }
+
+    @PostMapping("/transfer/batch")
+    @Operation(summary = "Выполнить пакет переводов",
+            description = "Выполняет пакет переводов между картами пользователя в одной транзакции. " +
+                    "Режим ALL_OR_NOTHING отменяет пакет целиком при первой ошибке, " +
+                    "BEST_EFFORT применяет все корректные переводы")
+    public BatchTransferResultDto transferBatch(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") BatchTransferMode mode,
+            @RequestBody List<TransferDto> transfers) {
+        return cardService.transferBatch(userId, transfers, mode);
     }
 
     @GetMapping
@@ -39,4 +70,16 @@ public class UserCardController {
             @RequestParam(defaultValue = "20") int size) {
         return cardService.getUserCards(userId, status, PageRequest.of(page, size));
     }
+
+    @GetMapping("/slice")
+    @Operation(summary = "Получить карты пользователя по курсору",
+            description = "Возвращает порцию карт пользователя в порядке возрастания id и курсор " +
+                    "следующей порции (nextCursor). Стоимость запроса не зависит от глубины просмотра")
+    public CardSliceDto getUserCardsSlice(
+            @PathVariable Long userId,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return cardService.getUserCardsSlice(userId, status, cursor, size);
+    }
 }
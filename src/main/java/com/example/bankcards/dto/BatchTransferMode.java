@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+/**
+ * Семантика выполнения пакета переводов
+ */
+public enum BatchTransferMode {
+
+    /**
+     * Пакет применяется целиком: при ошибке любого перевода не применяется ни один
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Применяются все корректные переводы, ошибочные пропускаются
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+/**
+ * DTO результата пакетного перевода средств.
+ *
+ * @param completed количество выполненных переводов
+ * @param failed    количество отклонённых переводов
+ * @param results   результаты по каждому переводу в порядке запроса
+ */
+public record BatchTransferResultDto(
+        int completed,
+        int failed,
+        List<TransferResultDto> results
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+/**
+ * DTO результата массового выпуска карт.
+ *
+ * @param created количество выпущенных карт
+ * @param failed  количество отклонённых карт
+ * @param results результаты по каждой карте в порядке запроса
+ */
+public record BulkCardIssueResultDto(
+        int created,
+        int failed,
+        List<CardIssueResultDto> results
+) {
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.dto;
+
+/**
+ * Формат потоковой выгрузки карт
+ */
+public enum CardExportFormat {
+
+    /**
+     * Одна карта - один JSON-объект в строке
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * CSV со строкой заголовка
+     */
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    CardExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+/**
+ * DTO результата выпуска одной карты из пакета.
+ *
+ * @param index  порядковый номер карты в пакете (с нуля)
+ * @param cardId идентификатор выпущенной карты (нет, если карта отклонена)
+ * @param error  причина отказа (только для отклонённой карты)
+ */
+public record CardIssueResultDto(
+        int index,
+        Long cardId,
+        String error
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+/**
+ * DTO порции карт при постраничном просмотре по курсору.
+ *
+ * @param content    карты порции в порядке возрастания id
+ * @param nextCursor курсор следующей порции, {@code null} для последней порции
+ * @param hasNext    есть ли следующая порция
+ */
+public record CardSliceDto(
+        List<CardDto> content,
+        String nextCursor,
+        boolean hasNext
+) {
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.dto;
+
+/**
+ * DTO результата одного перевода из пакета.
+ *
+ * @param index  порядковый номер перевода в пакете (с нуля)
+ * @param status итог выполнения перевода
+ * @param error  причина отказа (только для статуса FAILED)
+ */
+public record TransferResultDto(
+        int index,
+        Status status,
+        String error
+) {
+
+    /**
+     * Итог выполнения перевода из пакета
+     */
+    public enum Status {
+
+        /**
+         * Перевод выполнен
+         */
+        COMPLETED,
+
+        /**
+         * Перевод отклонён
+         */
+        FAILED,
+
+        /**
+         * Перевод не применён, так как пакет отменён целиком
+         */
+        ROLLED_BACK
+    }
+}
@@ -16,10 +16,12 @@ import java.util.Objects;
 public class Card {
 
     /**
-     * Уникальный идентификатор карты
+     * Уникальный идентификатор карты.
+     * Берётся из последовательности блоками по 50, чтобы вставки шли пакетами
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_id_seq")
+    @SequenceGenerator(name = "cards_id_seq", sequenceName = "cards_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -29,6 +31,14 @@ public class Card {
     @Column(name = "card_number", nullable = false)
     private String cardNumber;
 
+    /**
+     * Последние четыре цифры номера карты в открытом виде.
+     * Используются для маскированного номера, чтобы не расшифровывать
+     * {@link #cardNumber} при выдаче списков карт
+     */
+    @Column(name = "last4", length = 4)
+    private String last4;
+
     /**
      * Владелец карты
      * Связь многие-к-одному с сущностью User
@@ -58,6 +68,23 @@ public class Card {
     @Column
     private BigDecimal balance;
 
+    /**
+     * Версия строки для оптимистичной блокировки.
+     * Увеличивается Hibernate при каждом обновлении карты
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    /**
+     * Число дополнительных строк баланса ({@code card_balance_shards}) для
+     * «горячей» карты; 0 - обычная карта. Зачисления на горячую карту
+     * распределяются по строкам-шардам, её баланс равен сумме основной
+     * строки и всех шардов
+     */
+    @Column(name = "balance_shards", nullable = false)
+    private int balanceShards;
+
     /**
      * Конструктор по умолчанию для JPA
      */
@@ -115,6 +142,24 @@ public class Card {
         this.cardNumber = cardNumber;
     }
 
+    /**
+     * Получает последние четыре цифры номера карты
+     *
+     * @return последние четыре цифры
+     */
+    public String getLast4() {
+        return last4;
+    }
+
+    /**
+     * Устанавливает последние четыре цифры номера карты
+     *
+     * @param last4 последние четыре цифры
+     */
+    public void setLast4(String last4) {
+        this.last4 = last4;
+    }
+
     /**
      * Получает владельца карты
      *
@@ -187,6 +232,51 @@ public class Card {
         this.balance = balance;
     }
 
+    /**
+     * Получает версию строки карты
+     *
+     * @return версия строки
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Устанавливает версию строки карты
+     *
+     * @param version версия строки
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Получает число строк-шардов баланса карты
+     *
+     * @return число шардов, 0 для обычной карты
+     */
+    public int getBalanceShards() {
+        return balanceShards;
+    }
+
+    /**
+     * Устанавливает число строк-шардов баланса карты
+     *
+     * @param balanceShards число шардов, 0 для обычной карты
+     */
+    public void setBalanceShards(int balanceShards) {
+        this.balanceShards = balanceShards;
+    }
+
+    /**
+     * Проверяет, распределён ли баланс карты по шардам
+     *
+     * @return {@code true} для горячей карты
+     */
+    public boolean isHot() {
+        return balanceShards > 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,185 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.enums.TransactionType;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Запись журнала операций по карте.
+ * Журнал только дополняется: каждый перевод порождает две записи
+ * (списание и зачисление) с общим идентификатором перевода
+ */
+@Entity
+@Table(name = "card_transactions")
+public class Transaction {
+
+    /**
+     * Уникальный идентификатор записи
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Идентификатор перевода, общий для списания и зачисления
+     */
+    @Column(name = "transfer_id", nullable = false)
+    private UUID transferId;
+
+    /**
+     * Идентификатор карты, по которой проведена операция.
+     * Хранится без внешнего ключа, чтобы журнал переживал удаление карты
+     */
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    /**
+     * Идентификатор карты второй стороны перевода
+     */
+    @Column(name = "counterparty_card_id")
+    private Long counterpartyCardId;
+
+    /**
+     * Сумма операции со знаком: отрицательная для списания, положительная для зачисления
+     */
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    /**
+     * Тип операции
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionType type;
+
+    /**
+     * Момент проведения операции
+     */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Признак того, что сумма операции уже учтена в балансе карты.
+     * Неучтённые записи добавляются к снимку баланса при чтении и
+     * переносятся в него фоновым заданием
+     */
+    @Column(nullable = false)
+    private boolean settled;
+
+    /**
+     * Конструктор по умолчанию для JPA
+     */
+    public Transaction() {
+    }
+
+    /**
+     * Конструктор для создания новой записи журнала
+     *
+     * @param transferId         идентификатор перевода
+     * @param cardId             идентификатор карты
+     * @param counterpartyCardId идентификатор карты второй стороны
+     * @param amount             сумма операции со знаком
+     * @param type               тип операции
+     * @param createdAt          момент проведения операции
+     * @param settled            учтена ли сумма в балансе карты
+     */
+    public Transaction(UUID transferId, Long cardId, Long counterpartyCardId, BigDecimal amount,
+                       TransactionType type, Instant createdAt, boolean settled) {
+        this.transferId = transferId;
+        this.cardId = cardId;
+        this.counterpartyCardId = counterpartyCardId;
+        this.amount = amount;
+        this.type = type;
+        this.createdAt = createdAt;
+        this.settled = settled;
+    }
+
+    /**
+     * Получает уникальный идентификатор записи
+     *
+     * @return идентификатор записи
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Получает идентификатор перевода
+     *
+     * @return идентификатор перевода
+     */
+    public UUID getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Получает идентификатор карты
+     *
+     * @return идентификатор карты
+     */
+    public Long getCardId() {
+        return cardId;
+    }
+
+    /**
+     * Получает идентификатор карты второй стороны перевода
+     *
+     * @return идентификатор карты второй стороны
+     */
+    public Long getCounterpartyCardId() {
+        return counterpartyCardId;
+    }
+
+    /**
+     * Получает сумму операции со знаком
+     *
+     * @return сумма операции
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    /**
+     * Получает тип операции
+     *
+     * @return тип операции
+     */
+    public TransactionType getType() {
+        return type;
+    }
+
+    /**
+     * Получает момент проведения операции
+     *
+     * @return момент проведения операции
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Проверяет, учтена ли сумма операции в балансе карты
+     *
+     * @return {@code true}, если сумма учтена
+     */
+    public boolean isSettled() {
+        return settled;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Transaction that = (Transaction) o;
+        return Objects.equals(id, that.id) && Objects.equals(transferId, that.transferId) && Objects.equals(cardId, that.cardId) && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, transferId, cardId, type);
+    }
+}
@@ -44,6 +44,13 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
+    /**
+     * Версия выданных пользователю токенов.
+     * Увеличивается при смене логина, пароля или роли; токены с меньшей версией отклоняются
+     */
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     /**
      * Набор банковских карт, принадлежащих пользователю
      * Связь один-ко-многим с сущностью Card
@@ -133,6 +140,22 @@ public class User {
         this.role = role;
     }
 
+    /**
+     * Получает версию выданных пользователю токенов
+     * @return версия токенов
+     */
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    /**
+     * Устанавливает версию выданных пользователю токенов
+     * @param tokenVersion версия токенов
+     */
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     /**
      * Получает набор банковских карт пользователя
      * @return набор карт пользователя
@@ -0,0 +1,17 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * Перечисление типов записей журнала операций по карте
+ */
+public enum TransactionType {
+
+    /**
+     * Списание средств с карты
+     */
+    DEBIT,
+
+    /**
+     * Зачисление средств на карту
+     */
+    CREDIT
+}
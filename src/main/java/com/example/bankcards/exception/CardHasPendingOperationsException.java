@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class CardHasPendingOperationsException extends RuntimeException {
+    public CardHasPendingOperationsException(String message) {
+        super(message);
+    }
+}
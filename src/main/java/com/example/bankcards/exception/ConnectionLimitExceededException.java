@@ -0,0 +1,15 @@
+package com.example.bankcards.exception;
+
+/**
+ * Соединение с БД не выдано: очередь за соединениями заполнена
+ * или место не освободилось за время ожидания
+ */
+public class ConnectionLimitExceededException extends RuntimeException {
+    public ConnectionLimitExceededException(String message) {
+        super(message);
+    }
+
+    public ConnectionLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class InvalidCardSettingsException extends RuntimeException {
+    public InvalidCardSettingsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class TooManyLoginAttemptsException extends RuntimeException {
+    public TooManyLoginAttemptsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
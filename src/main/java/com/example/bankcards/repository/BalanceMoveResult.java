@@ -0,0 +1,28 @@
+package com.example.bankcards.repository;
+
+/**
+ * Результат атомарного перемещения средств между картами
+ * ({@link CardRepository#moveBalance}). Указывает, какая из проверок не прошла
+ */
+public enum BalanceMoveResult {
+
+    /**
+     * Средства списаны и зачислены
+     */
+    OK,
+
+    /**
+     * Хотя бы одна из карт не найдена или не принадлежит пользователю
+     */
+    CARD_NOT_FOUND,
+
+    /**
+     * Хотя бы одна из карт не активна
+     */
+    CARD_INACTIVE,
+
+    /**
+     * На карте-отправителе недостаточно средств
+     */
+    INSUFFICIENT_FUNDS
+}
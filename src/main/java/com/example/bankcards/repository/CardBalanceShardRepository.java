@@ -0,0 +1,80 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Строки-шарды баланса горячих карт.
+ * Каждое зачисление обновляет одну случайную строку, поэтому параллельные
+ * зачисления на одну карту не ждут друг друга на одной строке
+ */
+@Repository
+public class CardBalanceShardRepository {
+
+    private static final String CREATE_SQL = """
+            INSERT INTO card_balance_shards (card_id, shard, balance)
+            SELECT ?, s, 0 FROM generate_series(0, ? - 1) s
+            ON CONFLICT (card_id, shard) DO NOTHING
+            """;
+
+    private static final String CREDIT_SQL =
+            "UPDATE card_balance_shards SET balance = balance + ? WHERE card_id = ? AND shard = ?";
+
+    private static final String DRAIN_SQL = """
+            WITH drained AS (
+                DELETE FROM card_balance_shards WHERE card_id = ? RETURNING balance
+            )
+            SELECT coalesce(sum(balance), 0) FROM drained
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardBalanceShardRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Создаёт нулевые шарды карты с номерами от 0 до {@code shards - 1}
+     */
+    public void createShards(Long cardId, int shards) {
+        jdbcTemplate.update(CREATE_SQL, cardId, shards);
+    }
+
+    /**
+     * Зачисляет сумму на шард карты
+     *
+     * @return {@code false}, если шарда нет (карта перестала быть горячей)
+     */
+    public boolean credit(Long cardId, int shard, BigDecimal amount) {
+        return jdbcTemplate.update(CREDIT_SQL, amount, cardId, shard) == 1;
+    }
+
+    /**
+     * Суммирует шарды карт; карты без шардов не возвращаются
+     */
+    public Map<Long, BigDecimal> sumByCardIds(Collection<Long> cardIds) {
+        var sums = new HashMap<Long, BigDecimal>();
+        if (cardIds.isEmpty()) {
+            return sums;
+        }
+        var sql = "SELECT card_id, sum(balance) FROM card_balance_shards WHERE card_id = ANY (?) GROUP BY card_id";
+        jdbcTemplate.query(sql, rs -> {
+            sums.put(rs.getLong(1), rs.getBigDecimal(2));
+        }, (Object) cardIds.toArray(Long[]::new));
+        return sums;
+    }
+
+    /**
+     * Удаляет все шарды карты. Должен вызываться под блокировкой строки карты
+     *
+     * @return сумма удалённых шардов
+     */
+    public BigDecimal drain(Long cardId) {
+        return jdbcTemplate.queryForObject(DRAIN_SQL, BigDecimal.class, cardId);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.CardMasker;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Чтение всех карт курсором для выгрузки.
+ * Строки читаются напрямую через JDBC без сущностей и контекста персистентности;
+ * баланс считается в запросе с учётом неперенесённых операций журнала и шардов
+ */
+@Repository
+public class CardExportRepository {
+
+    private static final String SELECT_ALL_SQL = """
+            SELECT c.id, c.owner_id, c.last4, c.status,
+                   c.balance
+                       + COALESCE((SELECT sum(t.amount) FROM card_transactions t
+                                   WHERE t.card_id = c.id AND NOT t.settled), 0)
+                       + COALESCE((SELECT sum(s.balance) FROM card_balance_shards s
+                                   WHERE s.card_id = c.id), 0) AS balance
+            FROM cards c
+            ORDER BY c.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardExportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Передаёт все карты в порядке id, читая их однонаправленным курсором.
+     * PostgreSQL отдаёт строки порциями по {@code fetchSize} только внутри
+     * транзакции, поэтому метод должен вызываться в транзакции
+     */
+    public void forEachCard(int fetchSize, Consumer<CardDto> action) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    SELECT_ALL_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            action.accept(new CardDto(
+                    rs.getLong("id"),
+                    rs.getLong("owner_id"),
+                    CardMasker.maskLast4(rs.getString("last4")),
+                    CardStatus.valueOf(rs.getString("status")),
+                    rs.getBigDecimal("balance")));
+        });
+    }
+}
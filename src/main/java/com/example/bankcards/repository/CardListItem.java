@@ -0,0 +1,24 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка выдачи карт: только поля, нужные для {@link com.example.bankcards.dto.CardDto}.
+ * Читается без сущности {@code Card} и без загрузки владельца
+ */
+public interface CardListItem {
+
+    Long getId();
+
+    Long getOwnerId();
+
+    String getLast4();
+
+    CardStatus getStatus();
+
+    BigDecimal getBalance();
+
+    int getBalanceShards();
+}
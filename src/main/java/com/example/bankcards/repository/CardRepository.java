@@ -2,16 +2,144 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
 public interface CardRepository extends JpaRepository<Card, Long> {
 
-    Page<Card> findByOwnerId(Long ownerId, Pageable pageable);
-    Page<Card> findByOwnerIdAndStatus(Long ownerId, CardStatus status, Pageable pageable);
-    Optional<Card> findByIdAndOwnerId(Long userId, Long ownerId);
+    /**
+     * Выборка полей {@link CardListItem}. {@code c.owner.id} читается из внешнего
+     * ключа, поэтому владелец не соединяется и не загружается
+     */
+    String LIST_ITEM_SELECT = "select c.id as id, c.owner.id as ownerId, c.last4 as last4, " +
+            "c.status as status, c.balance as balance, c.balanceShards as balanceShards from Card c ";
+
+    Optional<Card> findByIdAndOwnerId(Long id, Long ownerId);
+
+    /**
+     * Все карты для выдачи, в порядке возрастания id
+     */
+    @Query(LIST_ITEM_SELECT + "order by c.id")
+    List<CardListItem> findAllListItems();
+
+    /**
+     * Страница карт владельца для выдачи
+     */
+    @Query(value = LIST_ITEM_SELECT + "where c.owner.id = :ownerId",
+            countQuery = "select count(c) from Card c where c.owner.id = :ownerId")
+    Page<CardListItem> findListItemsByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    /**
+     * Страница карт владельца с заданным статусом для выдачи
+     */
+    @Query(value = LIST_ITEM_SELECT + "where c.owner.id = :ownerId and c.status = :status",
+            countQuery = "select count(c) from Card c where c.owner.id = :ownerId and c.status = :status")
+    Page<CardListItem> findListItemsByOwnerIdAndStatus(@Param("ownerId") Long ownerId,
+                                                       @Param("status") CardStatus status,
+                                                       Pageable pageable);
+
+    /**
+     * Порция карт владельца после указанного id (keyset-пагинация по индексу
+     * {@code (owner_id, id)}). Запрос COUNT не выполняется
+     */
+    @Query(LIST_ITEM_SELECT + "where c.owner.id = :ownerId and c.id > :afterId order by c.id")
+    Slice<CardListItem> findListItemsByOwnerIdAfter(@Param("ownerId") Long ownerId,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    /**
+     * Порция карт владельца с заданным статусом после указанного id
+     */
+    @Query(LIST_ITEM_SELECT + "where c.owner.id = :ownerId and c.status = :status and c.id > :afterId order by c.id")
+    Slice<CardListItem> findListItemsByOwnerIdAndStatusAfter(@Param("ownerId") Long ownerId,
+                                                             @Param("status") CardStatus status,
+                                                             @Param("afterId") Long afterId,
+                                                             Pageable pageable);
+
+    /**
+     * Загружает карту владельца с блокировкой строки ({@code SELECT ... FOR UPDATE}).
+     * Блокировка удерживается до конца текущей транзакции
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id and c.owner.id = :ownerId")
+    Optional<Card> findByIdAndOwnerIdForUpdate(@Param("id") Long id, @Param("ownerId") Long ownerId);
+
+    /**
+     * Загружает карту с блокировкой строки ({@code SELECT ... FOR UPDATE})
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Идентификаторы горячих карт, баланс которых распределён по шардам
+     */
+    @Query("select c.id from Card c where c.balanceShards > 0")
+    List<Long> findHotCardIds();
+
+    /**
+     * Загружает карты владельца с блокировкой строк в порядке возрастания id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids and c.owner.id = :ownerId order by c.id")
+    List<Card> findAllByIdInAndOwnerIdForUpdate(@Param("ids") Collection<Long> ids, @Param("ownerId") Long ownerId);
+
+    /**
+     * Зачисляет сумму на основную строку карты одним UPDATE, не читая её:
+     * для карты, строка которой не заблокирована текущей транзакцией.
+     * Версия строки увеличивается, как при обычном изменении карты
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Card c set c.balance = c.balance + :amount, c.version = c.version + 1 where c.id = :id")
+    int creditBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Перемещает средства между картами владельца одним SQL-запросом.
+     * Обе строки блокируются по возрастанию id, проверки статуса, владельца и
+     * баланса выполняются в самом запросе; изменения применяются только если
+     * все проверки пройдены. Должен вызываться в транзакции на запись
+     *
+     * @return имя значения {@link BalanceMoveResult}
+     */
+    @Query(value = """
+            WITH locked AS (
+                SELECT id, status, balance FROM cards
+                WHERE id IN (:fromId, :toId) AND owner_id = :ownerId
+                ORDER BY id
+                FOR UPDATE
+            ), debit AS (
+                UPDATE cards c SET balance = c.balance - :amount, version = c.version + 1
+                FROM locked s, locked d
+                WHERE c.id = :fromId AND s.id = :fromId AND d.id = :toId
+                  AND s.status = 'ACTIVE' AND d.status = 'ACTIVE' AND s.balance >= :amount
+                RETURNING c.id
+            ), credit AS (
+                UPDATE cards c SET balance = c.balance + :amount, version = c.version + 1
+                WHERE c.id = :toId AND EXISTS (SELECT 1 FROM debit)
+                RETURNING c.id
+            )
+            SELECT CASE
+                WHEN (SELECT count(*) FROM locked) < 2 THEN 'CARD_NOT_FOUND'
+                WHEN EXISTS (SELECT 1 FROM locked WHERE status <> 'ACTIVE') THEN 'CARD_INACTIVE'
+                WHEN NOT EXISTS (SELECT 1 FROM credit) THEN 'INSUFFICIENT_FUNDS'
+                ELSE 'OK'
+            END
+            """, nativeQuery = true)
+    String moveBalance(@Param("ownerId") Long ownerId,
+                       @Param("fromId") Long fromId,
+                       @Param("toId") Long toId,
+                       @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,63 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Хранилище ключей идемпотентности переводов.
+ * Строка ключа вставляется в той же транзакции, что и перевод, поэтому
+ * фиксируется только вместе с ним
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO idempotency_keys (user_id, idem_key, request_hash, expires_at)
+            VALUES (?, ?, ?, now() + make_interval(secs => ?))
+            ON CONFLICT (user_id, idem_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash, expires_at = EXCLUDED.expires_at
+                WHERE idempotency_keys.expires_at < now()
+            """;
+
+    private static final String FIND_HASH_SQL = """
+            SELECT request_hash FROM idempotency_keys
+            WHERE user_id = ? AND idem_key = ? AND expires_at >= now()
+            """;
+
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM idempotency_keys WHERE expires_at < now()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Занимает ключ пользователя. Просроченный ключ занимается заново.
+     * Если ключ занят параллельной незафиксированной транзакцией, вызов ждёт её завершения
+     *
+     * @return {@code true}, если ключ занят этим вызовом
+     */
+    public boolean claim(Long userId, String key, String requestHash, Duration ttl) {
+        return jdbcTemplate.update(CLAIM_SQL, userId, key, requestHash, (double) ttl.toSeconds()) == 1;
+    }
+
+    /**
+     * Получает хеш запроса, сохранённый для действующего ключа
+     */
+    public Optional<String> findRequestHash(Long userId, String key) {
+        return jdbcTemplate.queryForList(FIND_HASH_SQL, String.class, userId, key).stream().findFirst();
+    }
+
+    /**
+     * Удаляет просроченные ключи
+     *
+     * @return число удалённых ключей
+     */
+    public int deleteExpired() {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Сумма неучтённых в балансе операций по карте
+ */
+public interface PendingDelta {
+
+    Long getCardId();
+
+    BigDecimal getDelta();
+}
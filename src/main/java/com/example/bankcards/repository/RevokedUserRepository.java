@@ -0,0 +1,40 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Удалённые пользователи, все токены которых отозваны.
+ * Строка пользователя удаляется вместе с {@code users.token_version}, поэтому
+ * отзыв хранится отдельно и переживает перезапуск приложения
+ */
+@Repository
+public class RevokedUserRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO revoked_users (user_id) VALUES (?) ON CONFLICT (user_id) DO NOTHING";
+
+    private static final String FIND_ALL_SQL = "SELECT user_id FROM revoked_users";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RevokedUserRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Отзывает все токены пользователя
+     */
+    public void revoke(Long userId) {
+        jdbcTemplate.update(INSERT_SQL, userId);
+    }
+
+    /**
+     * Идентификаторы пользователей с отозванными токенами
+     */
+    public List<Long> findAllUserIds() {
+        return jdbcTemplate.queryForList(FIND_ALL_SQL, Long.class);
+    }
+}
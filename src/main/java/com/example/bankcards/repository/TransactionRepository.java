@@ -0,0 +1,69 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
+
+    /**
+     * Суммирует неперенесённые операции по каждой из карт; карты без таких операций не возвращаются
+     */
+    @Query("select t.cardId as cardId, sum(t.amount) as delta from Transaction t " +
+            "where t.cardId in :cardIds and t.settled = false group by t.cardId")
+    List<PendingDelta> sumPendingByCardIds(@Param("cardIds") Collection<Long> cardIds);
+
+    /**
+     * Есть ли неперенесённые операции; читает частичный индекс idx_card_transactions_pending
+     */
+    boolean existsBySettledFalse();
+
+    /**
+     * Есть ли у карты неперенесённые операции
+     */
+    boolean existsByCardIdAndSettledFalse(Long cardId);
+
+    /**
+     * Переносит порцию неучтённых операций в снимки балансов одним запросом.
+     * Строки карт блокируются по возрастанию id, записи журнала, занятые
+     * параллельным переносом, пропускаются
+     *
+     * @param limit максимальное число записей журнала за один вызов
+     * @return число перенесённых записей
+     */
+    @Transactional
+    @Query(value = """
+            WITH batch AS (
+                SELECT id FROM card_transactions
+                WHERE NOT settled
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            ), moved AS (
+                UPDATE card_transactions t SET settled = true
+                FROM batch b
+                WHERE t.id = b.id
+                RETURNING t.card_id, t.amount
+            ), deltas AS (
+                SELECT card_id, sum(amount) AS delta FROM moved GROUP BY card_id
+            ), locked AS (
+                SELECT c.id FROM cards c
+                WHERE c.id IN (SELECT card_id FROM deltas)
+                ORDER BY c.id
+                FOR NO KEY UPDATE
+            ), applied AS (
+                UPDATE cards c SET balance = c.balance + d.delta, version = c.version + 1
+                FROM deltas d, locked l
+                WHERE c.id = d.card_id AND l.id = d.card_id
+                RETURNING c.id
+            )
+            SELECT count(*) FROM moved
+            """, nativeQuery = true)
+    long settlePending(@Param("limit") int limit);
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Запись журнала операций в обход контекста персистентности
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Вставляет записи журнала одним JDBC-пакетом. При {@code reWriteBatchedInserts=true}
+     * драйвер PostgreSQL отправляет пакет многострочными INSERT
+     *
+     * @param entries записи журнала
+     */
+    @Transactional
+    void insertAll(List<Transaction> entries);
+}
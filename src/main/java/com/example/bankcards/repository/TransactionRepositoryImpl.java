@@ -0,0 +1,34 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO card_transactions (transfer_id, card_id, counterparty_card_id, amount, type, created_at, settled)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<Transaction> entries) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, t) -> {
+            ps.setObject(1, t.getTransferId());
+            ps.setLong(2, t.getCardId());
+            ps.setObject(3, t.getCounterpartyCardId());
+            ps.setBigDecimal(4, t.getAmount());
+            ps.setString(5, t.getType().name());
+            ps.setTimestamp(6, Timestamp.from(t.getCreatedAt()));
+            ps.setBoolean(7, t.isSettled());
+        });
+    }
+}
@@ -2,8 +2,13 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -11,4 +16,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     Optional<User> findByUsername(String username);
 
+    /**
+     * Пользователи, у которых отзывались токены
+     */
+    @Query("select u.id as id, u.tokenVersion as tokenVersion from User u where u.tokenVersion > 0")
+    List<UserTokenVersion> findRevokedTokenVersions();
+
+    /**
+     * Идентификаторы из списка, для которых есть пользователи. Найденные строки
+     * блокируются от удаления до конца транзакции
+     */
+    @Query(value = "SELECT id FROM users WHERE id IN (:ids) FOR KEY SHARE", nativeQuery = true)
+    Set<Long> lockExistingIds(@Param("ids") Collection<Long> ids);
+
 }
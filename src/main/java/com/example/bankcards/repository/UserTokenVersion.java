@@ -0,0 +1,11 @@
+package com.example.bankcards.repository;
+
+/**
+ * Версия токенов пользователя
+ */
+public interface UserTokenVersion {
+
+    Long getId();
+
+    int getTokenVersion();
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.enums.Role;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+/**
+ * Аутентифицированный пользователь вместе с данными, которые записываются в JWT
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    private final Role role;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(Long id, String username, String password, Role role, int tokenVersion) {
+        super(username, password, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        this.id = id;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
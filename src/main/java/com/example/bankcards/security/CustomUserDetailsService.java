@@ -1,14 +1,15 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.repository.UserRepository;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository users;
 
     public CustomUserDetailsService(UserRepository users) {
@@ -19,9 +20,19 @@ public class CustomUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         var u = users.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + username));
-        return User.withUsername(u.getUsername())
-                .password(u.getPassword())
-                .roles(u.getRole().name())
-                .build();
+        return new AuthenticatedUser(u.getId(), u.getUsername(), u.getPassword(), u.getRole(), u.getTokenVersion());
+    }
+
+    /**
+     * Сохраняет пароль, перекодированный при успешном входе текущим алгоритмом
+     * или стоимостью. Пароль не менялся, поэтому токены пользователя не отзываются
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        var u = users.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + user.getUsername()));
+        u.setPassword(newPassword);
+        return new AuthenticatedUser(u.getId(), u.getUsername(), newPassword, u.getRole(), u.getTokenVersion());
     }
 }
@@ -1,9 +1,13 @@
 package com.example.bankcards.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,16 +16,32 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwt;
     private final UserDetailsService userDetailsService;
+    private final TokenEpochs tokenEpochs;
+    private final Timer authenticated;
+    private final Timer rejected;
 
-    public JwtAuthFilter(JwtService jwt, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwt, UserDetailsService userDetailsService,
+                         TokenEpochs tokenEpochs, MeterRegistry meterRegistry) {
         this.jwt = jwt;
         this.userDetailsService = userDetailsService;
+        this.tokenEpochs = tokenEpochs;
+        this.authenticated = authTimer(meterRegistry, "authenticated");
+        this.rejected = authTimer(meterRegistry, "rejected");
+    }
+
+    private static Timer authTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("bank.auth.filter")
+                .description("Время аутентификации запроса по JWT")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -33,10 +53,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String authHeader = req.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
+            long started = System.nanoTime();
             try {
-                String username = jwt.extractUsername(token);
+                Claims claims = jwt.parse(token);
+                String username = claims.getSubject();
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails ud = userDetailsService.loadUserByUsername(username);
+                    UserDetails ud = principal(claims, username);
                     if (ud.isAccountNonExpired() && ud.isAccountNonLocked() && ud.isEnabled()) {
                         var auth = new UsernamePasswordAuthenticationToken(ud, null, ud.getAuthorities());
                         auth.setDetails(new org.springframework.security.web.authentication.WebAuthenticationDetailsSource()
@@ -44,11 +66,30 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                         SecurityContextHolder.getContext().setAuthentication(auth);
                     }
                 }
+                authenticated.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
             } catch (Exception ex) {
+                rejected.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
                 res.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 return;
             }
         }
         chain.doFilter(req, res);
     }
+
+    /**
+     * Пользователь строится из утверждений токена без обращения к БД.
+     * Токены, выданные без id и роли, проверяются по пользователю из БД
+     *
+     * @throws BadCredentialsException если токен отозван
+     */
+    private UserDetails principal(Claims claims, String username) {
+        AuthenticatedUser user = jwt.toPrincipal(claims);
+        if (user == null) {
+            return userDetailsService.loadUserByUsername(username);
+        }
+        if (!tokenEpochs.isCurrent(user.getId(), user.getTokenVersion())) {
+            throw new BadCredentialsException("Токен отозван");
+        }
+        return user;
+    }
 }
@@ -1,5 +1,8 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.enums.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -9,37 +12,111 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Выпуск и проверка JWT.
+ * <p>
+ * Парсер создаётся один раз: сборка парсера на каждый запрос стоила больше самой
+ * проверки подписи. Клиент обычно отправляет один и тот же токен много раз, поэтому
+ * уже проверенные токены хранятся в ограниченном LRU-кеше до истечения их срока
+ * действия и повторно HMAC не проверяются. Ключ кеша - сам токен: совпадение строки
+ * целиком означает тот же подписанный токен, а хеширование токена стоило бы столько
+ * же, сколько проверка подписи. Отзыв токенов проверяется отдельно ({@link TokenEpochs})
+ * и кешем не обходится
+ */
 @Service
 public class JwtService {
 
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_TOKEN_VERSION = "ver";
+
     private final SecretKey key;
+    private final JwtParser parser;
     private final long expirationMinutes;
+    private final Map<String, Claims> verified;
 
     public JwtService(@Value("${app.jwt.secret}") String b64Secret,
-                      @Value("${app.jwt.expiration-minutes}") long expirationMinutes) {
+                      @Value("${app.jwt.expiration-minutes}") long expirationMinutes,
+                      @Value("${app.jwt.verified-cache-size:10000}") int verifiedCacheSize) {
         byte[] decoded = Decoders.BASE64.decode(b64Secret);
         this.key = Keys.hmacShaKeyFor(decoded);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
         this.expirationMinutes = expirationMinutes;
+        this.verified = verifiedCacheSize > 0 ? new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                return size() > verifiedCacheSize;
+            }
+        } : null;
     }
 
-    public String generate(String username) {
+    /**
+     * Токен с именем, id, ролью и версией токенов пользователя:
+     * по нему запрос аутентифицируется без обращения к БД
+     */
+    public String generate(AuthenticatedUser user) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + expirationMinutes * 60 * 1000);
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion())
                 .setIssuedAt(now)
                 .setExpiration(exp)
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Проверяет подпись и срок действия токена
+     *
+     * @throws io.jsonwebtoken.JwtException если токен недействителен или истёк
+     */
+    public Claims parse(String token) {
+        if (verified == null) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+        Claims claims;
+        synchronized (verified) {
+            claims = verified.get(token);
+        }
+        if (claims != null) {
+            if (claims.getExpiration().getTime() > System.currentTimeMillis()) {
+                return claims;
+            }
+            synchronized (verified) {
+                verified.remove(token);
+            }
+        }
+        claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            synchronized (verified) {
+                verified.put(token, claims);
+            }
+        }
+        return claims;
+    }
+
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parse(token).getSubject();
+    }
+
+    /**
+     * Пользователь из утверждений токена
+     *
+     * @return пользователь или {@code null} для токена, выданного без id и роли
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        if (userId == null || role == null || tokenVersion == null) {
+            return null;
+        }
+        return new AuthenticatedUser(userId, claims.getSubject(), "", Role.valueOf(role), tokenVersion);
     }
 }
@@ -0,0 +1,56 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Вход по логину и паролю в пуле {@code loginExecutor}, а не в потоке запроса
+ */
+@Service
+public class LoginService {
+
+    private final AuthenticationManager authManager;
+    private final JwtService jwt;
+    private final TaskExecutor loginExecutor;
+    private final Counter rejected;
+
+    public LoginService(AuthenticationManager authManager, JwtService jwt,
+                        @Qualifier("loginExecutor") TaskExecutor loginExecutor,
+                        MeterRegistry meterRegistry) {
+        this.authManager = authManager;
+        this.jwt = jwt;
+        this.loginExecutor = loginExecutor;
+        this.rejected = Counter.builder("bank.auth.login.rejected")
+                .description("Входы, отклонённые из-за переполнения очереди")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверяет пароль и выпускает токен
+     *
+     * @return токен; при неверных данных завершается с {@link org.springframework.security.core.AuthenticationException}
+     * @throws TooManyLoginAttemptsException если очередь входов заполнена
+     */
+    public CompletableFuture<String> login(String username, String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                Authentication auth = authManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(username, password));
+                return jwt.generate((AuthenticatedUser) auth.getPrincipal());
+            }, loginExecutor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyLoginAttemptsException("Слишком много одновременных входов, повторите позже", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.UserTokenVersion;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Минимальные действующие версии токенов пользователей. Токен с версией ниже
+ * минимальной отозван. В памяти хранятся только пользователи, у которых токены
+ * отзывались, поэтому проверка токена не обращается к БД.
+ * <p>
+ * Версии хранятся в {@code users.token_version}, загружаются при старте и
+ * периодически перечитываются, чтобы отзыв на одном экземпляре приложения дошёл
+ * до остальных. Версии только растут. Токены удалённого пользователя отзываются
+ * записью в {@code revoked_users}: его строки в {@code users} больше нет
+ */
+@Component
+public class TokenEpochs {
+
+    private static final int REVOKED = Integer.MAX_VALUE;
+
+    private final UserRepository userRepository;
+    private final RevokedUserRepository revokedUserRepository;
+    private final Map<Long, Integer> minVersions = new ConcurrentHashMap<>();
+
+    public TokenEpochs(UserRepository userRepository, RevokedUserRepository revokedUserRepository) {
+        this.userRepository = userRepository;
+        this.revokedUserRepository = revokedUserRepository;
+        refresh();
+    }
+
+    /**
+     * Действителен ли токен пользователя с указанной версией
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        return tokenVersion >= minVersions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * После фиксации транзакции отзывает токены пользователя с версией ниже указанной
+     */
+    public void advanceAfterCommit(Long userId, int tokenVersion) {
+        afterCommit(() -> minVersions.merge(userId, tokenVersion, Math::max));
+    }
+
+    /**
+     * Отзывает все токены пользователя: отзыв записывается в текущей транзакции,
+     * в памяти применяется после её фиксации
+     */
+    public void revoke(Long userId) {
+        revokedUserRepository.revoke(userId);
+        advanceAfterCommit(userId, REVOKED);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.token-epochs.refresh-ms:30000}",
+            initialDelayString = "${app.security.token-epochs.refresh-ms:30000}")
+    public void refresh() {
+        for (UserTokenVersion v : userRepository.findRevokedTokenVersions()) {
+            minVersions.merge(v.getId(), v.getTokenVersion(), Math::max);
+        }
+        for (Long userId : revokedUserRepository.findAllUserIds()) {
+            minVersions.put(userId, REVOKED);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
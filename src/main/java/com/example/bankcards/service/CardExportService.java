@@ -0,0 +1,21 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Сервис потоковой выгрузки карт
+ */
+public interface CardExportService {
+
+    /**
+     * Записывает все карты в поток по мере чтения из базы,
+     * не собирая их в памяти
+     *
+     * @param format формат выгрузки
+     * @param out    поток ответа
+     */
+    void export(CardExportFormat format, OutputStream out) throws IOException;
+}
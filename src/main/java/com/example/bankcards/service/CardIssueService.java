@@ -0,0 +1,24 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueResultDto;
+import com.example.bankcards.dto.CreateCardDto;
+
+import java.util.List;
+
+/**
+ * Сервис массового выпуска карт
+ */
+public interface CardIssueService {
+
+    /**
+     * Выпускает пакет карт. Карты с некорректным номером или несуществующим
+     * владельцем отклоняются, остальные сохраняются в одной транзакции
+     *
+     * @param cards данные карт
+     * @return результат по каждой карте в порядке запроса
+     * @throws com.example.bankcards.exception.InvalidCardDataException если пакет пуст или слишком велик,
+     *                                                                  или у какой-либо карты истёк срок
+     *                                                                  действия или отрицательный баланс
+     */
+    BulkCardIssueResultDto issue(List<CreateCardDto> cards);
+}
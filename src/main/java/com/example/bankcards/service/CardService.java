@@ -1,6 +1,9 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResultDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSliceDto;
 import com.example.bankcards.dto.CreateCardDto;
 import com.example.bankcards.dto.TransferDto;
 import com.example.bankcards.entity.enums.CardStatus;
@@ -29,6 +32,8 @@ public interface CardService {
      * @return созданная карта
      * @throws com.example.bankcards.exception.UserNotFoundException если пользователь не найден
      * @throws com.example.bankcards.exception.InvalidCardNumberException если не корректный номер карты
+     * @throws com.example.bankcards.exception.InvalidCardDataException если срок действия истёк
+     *                                                                  или баланс отрицательный
      */
     CardDto createCard(CreateCardDto cardDto);
 
@@ -55,9 +60,25 @@ public interface CardService {
      *
      * @param cardId идентификатор карты
      * @throws com.example.bankcards.exception.CardNotFoundException если карта не найдена
+     * @throws com.example.bankcards.exception.CardHasPendingOperationsException если по карте есть
+     *                                                                           неучтённые операции журнала
      */
     void deleteCard(Long cardId);
 
+    /**
+     * Включает или выключает распределение баланса карты по шардам.
+     * Зачисления на горячую карту не блокируют её строку; при выключении
+     * и при смене числа шардов их сумма переносится в основной баланс
+     *
+     * @param cardId  идентификатор карты
+     * @param enabled {@code true}, чтобы сделать карту горячей
+     * @param shards  число шардов баланса, учитывается при включении
+     * @return обновленная карта
+     * @throws com.example.bankcards.exception.CardNotFoundException если карта не найдена
+     * @throws com.example.bankcards.exception.InvalidCardSettingsException если число шардов вне допустимого диапазона
+     */
+    CardDto setHot(Long cardId, boolean enabled, int shards);
+
     /**
      * Обрабатывает запрос пользователя на блокировку карты
      *
@@ -81,6 +102,31 @@ public interface CardService {
      */
     void transfer(Long userId, TransferDto dto);
 
+    /**
+     * Выполняет перевод средств с ключом идемпотентности.
+     * Повтор с тем же ключом и теми же данными не выполняет перевод заново
+     *
+     * @param userId         идентификатор пользователя, инициирующего перевод
+     * @param dto            данные перевода
+     * @param idempotencyKey ключ идемпотентности, заданный клиентом
+     * @return {@code true}, если перевод выполнен этим вызовом; {@code false}, если это повтор
+     * @throws com.example.bankcards.exception.IdempotencyKeyReuseException если ключ использован для другого перевода
+     * @see #transfer(Long, TransferDto)
+     */
+    boolean transfer(Long userId, TransferDto dto, String idempotencyKey);
+
+    /**
+     * Выполняет пакет переводов между картами пользователя в одной транзакции.
+     * Все карты пакета блокируются один раз в порядке возрастания id
+     *
+     * @param userId    идентификатор пользователя, инициирующего переводы
+     * @param transfers переводы в порядке применения
+     * @param mode      семантика пакета: всё или ничего либо по возможности
+     * @return результат по каждому переводу
+     * @throws com.example.bankcards.exception.InvalidTransferException если пакет пуст или слишком велик
+     */
+    BatchTransferResultDto transferBatch(Long userId, List<TransferDto> transfers, BatchTransferMode mode);
+
     /**
      * Получает карты пользователя с пагинацией и фильтрацией по статусу
      *
@@ -91,4 +137,18 @@ public interface CardService {
      * @throws com.example.bankcards.exception.UserNotFoundException если пользователь не найден
      */
     Page<CardDto> getUserCards(Long ownerId, CardStatus status, Pageable pageable);
+
+    /**
+     * Получает порцию карт пользователя по курсору (keyset-пагинация).
+     * В отличие от {@link #getUserCards} не выполняет OFFSET и COUNT,
+     * поэтому стоимость запроса не зависит от глубины просмотра
+     *
+     * @param ownerId идентификатор владельца карт
+     * @param status  статус карты для фильтрации (опционально)
+     * @param cursor  курсор из предыдущей порции, {@code null} для первой порции
+     * @param size    размер порции
+     * @return карты порции и курсор следующей
+     * @throws com.example.bankcards.exception.InvalidPageRequestException при некорректном курсоре или размере
+     */
+    CardSliceDto getUserCardsSlice(Long ownerId, CardStatus status, String cursor, int size);
 }
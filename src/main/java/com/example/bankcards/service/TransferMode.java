@@ -0,0 +1,33 @@
+package com.example.bankcards.service;
+
+/**
+ * Режим конкурентного выполнения переводов между картами.
+ * Задаётся свойством {@code app.card.transfer.mode}
+ */
+public enum TransferMode {
+
+    /**
+     * Пессимистичный режим - карты блокируются на время транзакции
+     * ({@code SELECT ... FOR UPDATE}) под полосатой блокировкой внутри процесса
+     */
+    PESSIMISTIC,
+
+    /**
+     * Оптимистичный режим - карты читаются без блокировок, конфликт обнаруживается
+     * по колонке {@code version} при фиксации, и перевод повторяется ограниченное число раз
+     */
+    OPTIMISTIC,
+
+    /**
+     * Атомарный режим - списание и зачисление выполняются одним SQL-запросом
+     * без загрузки сущностей карт в контекст персистентности
+     */
+    ATOMIC,
+
+    /**
+     * Журнальный режим - перевод добавляет в журнал неучтённые записи, блокируя
+     * только строку карты-отправителя; баланс карты является снимком, в который
+     * записи журнала переносятся фоновым заданием
+     */
+    LEDGER
+}
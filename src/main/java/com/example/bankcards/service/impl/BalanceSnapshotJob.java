@@ -0,0 +1,57 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически переносит неучтённые операции журнала в снимки балансов карт.
+ * Живой баланс карты равен снимку {@code cards.balance} плюс сумма её
+ * неучтённых операций, поэтому перенос не меняет видимых балансов
+ */
+@Component
+public class BalanceSnapshotJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotJob.class);
+
+    private final TransactionRepository transactionRepository;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter settled;
+
+    public BalanceSnapshotJob(TransactionRepository transactionRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.ledger.rollup.batch-size:10000}") int batchSize,
+                              @Value("${app.ledger.rollup.max-batches-per-run:10}") int maxBatchesPerRun) {
+        this.transactionRepository = transactionRepository;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.settled = Counter.builder("bank.ledger.settled")
+                .description("Операции журнала, перенесённые в снимки балансов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Переносит накопившиеся операции порциями; каждая порция фиксируется отдельно
+     */
+    @Scheduled(fixedDelayString = "${app.ledger.rollup.interval-ms:1000}")
+    public void rollup() {
+        long total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            long moved = transactionRepository.settlePending(batchSize);
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            settled.increment(total);
+            log.debug("Перенесено в снимки балансов операций: {}", total);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardExportFormat;
+import com.example.bankcards.repository.CardExportRepository;
+import com.example.bankcards.service.CardExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Выгрузка карт курсором в транзакции только для чтения.
+ * Каждая строка результата сразу записывается в поток ответа, поэтому
+ * расход памяти не зависит от числа карт
+ */
+@Service
+public class CardExportServiceImpl implements CardExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardExportServiceImpl.class);
+
+    static final String CSV_HEADER = "id,ownerId,number,status,balance";
+
+    private final CardExportRepository cardExportRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+
+    public CardExportServiceImpl(CardExportRepository cardExportRepository,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.card.export.fetch-size:1000}") int fetchSize) {
+        this.cardExportRepository = cardExportRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void export(CardExportFormat format, OutputStream out) throws IOException {
+        log.debug("Выгрузка карт в формате {}", format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            switch (format) {
+                case NDJSON -> exportNdjson(writer);
+                case CSV -> exportCsv(writer);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void exportNdjson(Writer writer) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+        forEachCard(card -> {
+            try {
+                objectMapper.writeValue(json, card);
+                json.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        json.flush();
+    }
+
+    private void exportCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        forEachCard(card -> {
+            try {
+                writer.write(String.valueOf(card.id()));
+                writer.write(',');
+                writer.write(String.valueOf(card.ownerId()));
+                writer.write(',');
+                writer.write(card.number());
+                writer.write(',');
+                writer.write(card.status().name());
+                writer.write(',');
+                writer.write(card.balance() == null ? "" : card.balance().toPlainString());
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void forEachCard(Consumer<CardDto> action) {
+        readOnlyTx.executeWithoutResult(status -> cardExportRepository.forEachCard(fetchSize, action));
+    }
+}
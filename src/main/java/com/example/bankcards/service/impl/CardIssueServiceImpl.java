@@ -0,0 +1,155 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.BulkCardIssueResultDto;
+import com.example.bankcards.dto.CardIssueResultDto;
+import com.example.bankcards.dto.CreateCardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.InvalidCardDataException;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardIssueService;
+import com.example.bankcards.util.CardCrypto;
+import com.example.bankcards.util.CardDataRules;
+import com.example.bankcards.util.CardMasker;
+import com.example.bankcards.util.Luhn;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Массовый выпуск карт.
+ * <p>
+ * Срок действия и баланс каждой карты проверяются до обращения к БД: пакет
+ * с некорректной картой отклоняется целиком с её индексом. Проверка номеров
+ * по Луну и шифрование выполняются параллельно до начала транзакции. В
+ * транзакции владельцы проверяются одним запросом на весь пакет, их строки
+ * блокируются от удаления до фиксации, затем идут только вставки: идентификаторы берутся из последовательности блоками
+ * (см. {@link Card}), поэтому Hibernate отправляет их JDBC-пакетами. Контекст
+ * сохраняемости сбрасывается и очищается каждые {@code chunkSize} карт, чтобы
+ * не держать в памяти весь пакет
+ */
+@Service
+public class CardIssueServiceImpl implements CardIssueService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardIssueServiceImpl.class);
+
+    private final UserRepository userRepository;
+    private final CardCrypto cardCrypto;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxSize;
+    private final int chunkSize;
+
+    public CardIssueServiceImpl(UserRepository userRepository,
+                                CardCrypto cardCrypto,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.card.issue.max-size:10000}") int maxSize,
+                                @Value("${app.card.issue.chunk-size:1000}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.cardCrypto = cardCrypto;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxSize = maxSize;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BulkCardIssueResultDto issue(List<CreateCardDto> cards) {
+        log.debug("Запрос на выпуск карт: {}", cards == null ? 0 : cards.size());
+        if (cards == null || cards.isEmpty()) {
+            throw new InvalidCardDataException("Пакет карт пуст");
+        }
+        if (cards.size() > maxSize) {
+            throw new InvalidCardDataException("Пакет не может содержать больше " + maxSize + " карт");
+        }
+        validateData(cards);
+
+        int n = cards.size();
+        var errors = new String[n];
+        var encrypted = new String[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            var dto = cards.get(i);
+            if (dto == null || dto.ownerId() == null) {
+                errors[i] = "Пользователь не найден";
+            } else if (!Luhn.isValid(dto.number())) {
+                errors[i] = "Некорректный номер карты";
+            } else {
+                encrypted[i] = cardCrypto.encrypt(dto.number());
+            }
+        });
+        Set<Long> ownerIds = cards.stream()
+                .filter(Objects::nonNull)
+                .map(CreateCardDto::ownerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        var ids = new Long[n];
+        transactionTemplate.executeWithoutResult(tx -> {
+            Set<Long> owners = ownerIds.isEmpty() ? Set.of() : userRepository.lockExistingIds(ownerIds);
+            int pending = 0;
+            for (int i = 0; i < n; i++) {
+                var dto = cards.get(i);
+                if (dto == null || dto.ownerId() == null) {
+                    continue;
+                }
+                if (!owners.contains(dto.ownerId())) {
+                    errors[i] = "Пользователь не найден";
+                    continue;
+                }
+                if (encrypted[i] == null) {
+                    continue;
+                }
+                var card = new Card();
+                card.setOwner(entityManager.getReference(User.class, dto.ownerId()));
+                card.setCardNumber(encrypted[i]);
+                card.setLast4(CardMasker.last4(dto.number()));
+                card.setExpirationDate(dto.expiryDate());
+                card.setStatus(CardStatus.ACTIVE);
+                card.setBalance(dto.balance());
+                entityManager.persist(card);
+                ids[i] = card.getId();
+                if (++pending == chunkSize) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    pending = 0;
+                }
+            }
+        });
+
+        var results = new ArrayList<CardIssueResultDto>(n);
+        int created = 0;
+        for (int i = 0; i < n; i++) {
+            results.add(new CardIssueResultDto(i, ids[i], errors[i]));
+            if (ids[i] != null) {
+                created++;
+            }
+        }
+        log.debug("Выпуск карт завершён: выпущено {}, отклонено {}", created, n - created);
+        return new BulkCardIssueResultDto(created, n - created, results);
+    }
+
+    private static void validateData(List<CreateCardDto> cards) {
+        var today = LocalDate.now();
+        for (int i = 0; i < cards.size(); i++) {
+            var dto = cards.get(i);
+            String violation = dto == null ? null : CardDataRules.violation(dto, today);
+            if (violation != null) {
+                throw new InvalidCardDataException("Карта " + i + ": " + violation);
+            }
+        }
+    }
+}
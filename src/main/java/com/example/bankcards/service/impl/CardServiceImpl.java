@@ -1,58 +1,124 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResultDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSliceDto;
 import com.example.bankcards.dto.CreateCardDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferResultDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.*;
+import com.example.bankcards.repository.BalanceMoveResult;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardListItem;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.PendingDelta;
+import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TransferMode;
 import com.example.bankcards.util.CardCrypto;
+import com.example.bankcards.util.CardDataRules;
+import com.example.bankcards.util.CardCursor;
+import com.example.bankcards.util.CardLockManager;
 import com.example.bankcards.util.CardMasker;
 import com.example.bankcards.util.Luhn;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@Timed(value = "bank.card.service", histogram = true)
 public class CardServiceImpl implements CardService {
 
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final CardBalanceShardRepository cardBalanceShardRepository;
+    private final HotCardRegistry hotCardRegistry;
     private final CardCrypto cardCrypto;
+    private final CardLockManager cardLockManager;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final LedgerWriter ledgerWriter;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final TransferMode transferMode;
+    private final int batchMaxSize;
+    private final int maxHotShards;
+    private volatile boolean journalSettled;
     private static final Logger log = LoggerFactory.getLogger(CardServiceImpl.class);
+    private static final int MAX_SLICE_SIZE = 100;
 
-    public CardServiceImpl(CardRepository cardRepository, UserRepository userRepository, CardCrypto cardCrypto) {
+    public CardServiceImpl(CardRepository cardRepository, UserRepository userRepository,
+                           TransactionRepository transactionRepository,
+                           CardBalanceShardRepository cardBalanceShardRepository, HotCardRegistry hotCardRegistry,
+                           CardCrypto cardCrypto,
+                           CardLockManager cardLockManager, OptimisticRetryExecutor optimisticRetryExecutor,
+                           LedgerWriter ledgerWriter, IdempotencyGuard idempotencyGuard,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${app.card.transfer.mode:PESSIMISTIC}") TransferMode transferMode,
+                           @Value("${app.card.transfer.batch-max-size:5000}") int batchMaxSize,
+                           @Value("${app.card.hot.max-shards:64}") int maxHotShards) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.cardBalanceShardRepository = cardBalanceShardRepository;
+        this.hotCardRegistry = hotCardRegistry;
         this.cardCrypto = cardCrypto;
+        this.cardLockManager = cardLockManager;
+        this.optimisticRetryExecutor = optimisticRetryExecutor;
+        this.ledgerWriter = ledgerWriter;
+        this.idempotencyGuard = idempotencyGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.transferMode = transferMode;
+        this.batchMaxSize = batchMaxSize;
+        this.maxHotShards = maxHotShards;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CardDto> getAllCards() {
-        return cardRepository.findAll()
-                .stream().
-                map(c -> new CardDto(
-                        c.getId(),
-                        c.getOwner().getId(),
-                        CardMasker.mask(cardCrypto.decrypt(c.getCardNumber())),
-                        c.getStatus(),
-                        c.getBalance()))
-                .toList();
+        return toDtos(cardRepository.findAllListItems());
     }
 
     @Override
     public CardDto createCard(CreateCardDto cardDto) {
         log.debug("Добавление карты для пользователя: {}", cardDto.ownerId());
+        String violation = CardDataRules.violation(cardDto, LocalDate.now());
+        if (violation != null) {
+            throw new InvalidCardDataException("Карта: " + violation);
+        }
         var card = new Card();
         card.setOwner(userRepository.findById(cardDto.ownerId())
                 .orElseThrow(() -> new UserNotFoundException("Пользователь не найден")));
@@ -60,6 +126,7 @@ public class CardServiceImpl implements CardService {
             throw new InvalidCardNumberException("Некорректный номер карты");
         }
         card.setCardNumber(cardCrypto.encrypt(cardDto.number()));
+        card.setLast4(CardMasker.last4(cardDto.number()));
         card.setExpirationDate(cardDto.expiryDate());
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(cardDto.balance());
@@ -77,10 +144,10 @@ public class CardServiceImpl implements CardService {
                 .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
         card.setStatus(CardStatus.BLOCKED);
         var savedCard = cardRepository.save(card);
-        String masked = CardMasker.mask(cardCrypto.decrypt(savedCard.getCardNumber()));
+        String masked = CardMasker.maskLast4(savedCard.getLast4());
         log.debug("Заблокирована карта с id: {}", cardId);
         return new CardDto(savedCard.getId(), savedCard.getOwner().getId(),
-                masked, savedCard.getStatus(), savedCard.getBalance());
+                masked, savedCard.getStatus(), liveBalance(savedCard));
     }
 
     @Override
@@ -90,10 +157,10 @@ public class CardServiceImpl implements CardService {
                 .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
         card.setStatus(CardStatus.ACTIVE);
         var savedCard = cardRepository.save(card);
-        String masked = CardMasker.mask(cardCrypto.decrypt(savedCard.getCardNumber()));
+        String masked = CardMasker.maskLast4(savedCard.getLast4());
         log.debug("Карта с id: {} активирована", cardId);
         return new CardDto(savedCard.getId(), savedCard.getOwner().getId(),
-                masked, savedCard.getStatus(), savedCard.getBalance());
+                masked, savedCard.getStatus(), liveBalance(savedCard));
     }
 
     @Override
@@ -102,10 +169,34 @@ public class CardServiceImpl implements CardService {
         if (!cardRepository.existsById(cardId)) {
             throw new CardNotFoundException("Карта не найдена");
         }
+        if (transactionRepository.existsByCardIdAndSettledFalse(cardId)) {
+            throw new CardHasPendingOperationsException("По карте есть неучтённые операции, повторите удаление позже");
+        }
         cardRepository.deleteById(cardId);
         log.debug("Карта удалена: {}", cardId );
     }
 
+    @Override
+    public CardDto setHot(Long cardId, boolean enabled, int shards) {
+        log.debug("Запрос на изменение режима горячей карты: {}, {}, {}", cardId, enabled, shards);
+        if (enabled && (shards < 1 || shards > maxHotShards)) {
+            throw new InvalidCardSettingsException("Число шардов должно быть от 1 до " + maxHotShards);
+        }
+        var card = cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
+        card.setBalance(card.getBalance().add(cardBalanceShardRepository.drain(cardId)));
+        if (enabled) {
+            cardBalanceShardRepository.createShards(cardId, shards);
+        }
+        card.setBalanceShards(enabled ? shards : 0);
+        var savedCard = cardRepository.save(card);
+        hotCardRegistry.updateAfterCommit(cardId, enabled);
+        String masked = CardMasker.maskLast4(savedCard.getLast4());
+        log.debug("Режим горячей карты {} изменён", cardId);
+        return new CardDto(savedCard.getId(), savedCard.getOwner().getId(),
+                masked, savedCard.getStatus(), liveBalance(savedCard));
+    }
+
     @Override
     public CardDto requestBlock(Long userId, Long cardId) {
         log.debug("Запрос на блокировку карты от пользователя: {}, {}", cardId, userId);
@@ -116,49 +207,396 @@ public class CardServiceImpl implements CardService {
         }
         card.setStatus(CardStatus.BLOCKED);
         var savedCard = cardRepository.save(card);
-        String masked = CardMasker.mask(cardCrypto.decrypt(savedCard.getCardNumber()));
+        String masked = CardMasker.maskLast4(savedCard.getLast4());
         log.debug("Карта успешно заблокирована: {}", cardId);
         return new CardDto(savedCard.getId(), savedCard.getOwner().getId(),
-                masked, savedCard.getStatus(), savedCard.getBalance());
+                masked, savedCard.getStatus(), liveBalance(savedCard));
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void transfer(Long userId, TransferDto dto) {
-        log.debug("Запрос на перевод средств от пользователя: {}, {}", userId, dto);
+        transfer(userId, dto, null);
+    }
+
+    /**
+     * Транзакции перевода открываются явно: в пессимистичном режиме фиксация
+     * происходит под полосатой блокировкой, в оптимистичном каждая попытка
+     * выполняется в собственной транзакции. Ключ идемпотентности занимается
+     * в той же транзакции, что и перевод
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean transfer(Long userId, TransferDto dto, String idempotencyKey) {
+        try {
+            boolean executed = doTransfer(userId, dto, idempotencyKey);
+            countTransfer(executed ? "completed" : "replayed");
+            return executed;
+        } catch (RuntimeException e) {
+            countTransfer(e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    /**
+     * Итог перевода: completed, replayed (повтор по ключу идемпотентности)
+     * или имя класса исключения, с которым перевод отклонён
+     */
+    private void countTransfer(String outcome) {
+        meterRegistry.counter("bank.transfer.outcome", "outcome", outcome, "mode", transferMode.name()).increment();
+    }
+
+    private boolean doTransfer(Long userId, TransferDto dto, String idempotencyKey) {
+        if (log.isDebugEnabled()) {
+            log.debug("Запрос на перевод средств от пользователя {}: карта {} -> карта {}",
+                    userId, dto.fromCardId(), dto.toCardId());
+        }
         if (dto.fromCardId().equals(dto.toCardId())) {
             throw new InvalidTransferException("Карты совпадают");
         }
         if (dto.amount() == null || dto.amount().compareTo(BigDecimal.ZERO) <= 0) {
             throw new InvalidTransferException("Сумма должна быть больше 0");
         }
-        var from = cardRepository.findByIdAndOwnerId(userId, dto.fromCardId())
+        if (idempotencyKey != null && idempotencyGuard.isCompleted(userId, idempotencyKey, dto)) {
+            log.debug("Повтор перевода с ключом идемпотентности, перевод уже выполнен");
+            return false;
+        }
+        boolean toHot = hotCardRegistry.isHot(dto.toCardId());
+        boolean executed = switch (transferMode) {
+            case OPTIMISTIC -> optimisticRetryExecutor.execute(() ->
+                    inTransferTransaction(userId, dto, idempotencyKey, () -> moveBalanceOptimistic(userId, dto)));
+            case ATOMIC -> toHot || hotCardRegistry.isHot(dto.fromCardId()) || !journalSettled()
+                    ? inTransferTransaction(userId, dto, idempotencyKey, () -> moveBalance(userId, dto))
+                    : inTransferTransaction(userId, dto, idempotencyKey, () -> moveBalanceAtomic(userId, dto));
+            case LEDGER -> inTransferTransaction(userId, dto, idempotencyKey, () -> moveBalanceLedger(userId, dto));
+            case PESSIMISTIC -> cardLockManager.callWithLocks(() ->
+                    inTransferTransaction(userId, dto, idempotencyKey, () -> moveBalance(userId, dto)),
+                    toHot ? new long[]{dto.fromCardId()} : new long[]{dto.fromCardId(), dto.toCardId()});
+        };
+        log.debug(executed ? "Перевод выполнен" : "Повтор перевода с ключом идемпотентности, перевод уже выполнен");
+        return executed;
+    }
+
+    private boolean inTransferTransaction(Long userId, TransferDto dto, String idempotencyKey, Runnable move) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            if (idempotencyKey != null && !idempotencyGuard.claim(userId, idempotencyKey, dto)) {
+                return false;
+            }
+            move.run();
+            return true;
+        }));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchTransferResultDto transferBatch(Long userId, List<TransferDto> transfers, BatchTransferMode mode) {
+        log.debug("Запрос на пакетный перевод от пользователя: {}, переводов: {}", userId,
+                transfers == null ? 0 : transfers.size());
+        if (transfers == null || transfers.isEmpty()) {
+            throw new InvalidTransferException("Пакет переводов пуст");
+        }
+        if (transfers.size() > batchMaxSize) {
+            throw new InvalidTransferException("Пакет не может содержать больше " + batchMaxSize + " переводов");
+        }
+        var results = new TransferResultDto[transfers.size()];
+        var cardIds = new TreeSet<Long>();
+        for (int i = 0; i < transfers.size(); i++) {
+            String error = validateBatchItem(transfers.get(i));
+            if (error != null) {
+                results[i] = new TransferResultDto(i, TransferResultDto.Status.FAILED, error);
+            } else {
+                cardIds.add(transfers.get(i).fromCardId());
+                cardIds.add(transfers.get(i).toCardId());
+            }
+        }
+        boolean allOrNothing = mode == BatchTransferMode.ALL_OR_NOTHING;
+        boolean rejected = Arrays.stream(results).anyMatch(Objects::nonNull);
+        if (!cardIds.isEmpty() && !(allOrNothing && rejected)) {
+            long[] ids = cardIds.stream().mapToLong(Long::longValue).toArray();
+            cardLockManager.runWithLocks(() -> transactionTemplate.executeWithoutResult(tx -> {
+                if (!applyBatch(userId, transfers, results, cardIds, allOrNothing)) {
+                    tx.setRollbackOnly();
+                }
+            }), ids);
+        }
+        boolean rolledBack = allOrNothing && Arrays.stream(results)
+                .anyMatch(r -> r != null && r.status() == TransferResultDto.Status.FAILED);
+        var list = new ArrayList<TransferResultDto>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            var r = results[i];
+            if (r == null || (rolledBack && r.status() == TransferResultDto.Status.COMPLETED)) {
+                r = new TransferResultDto(i, TransferResultDto.Status.ROLLED_BACK, null);
+            }
+            list.add(r);
+        }
+        int completed = (int) list.stream().filter(r -> r.status() == TransferResultDto.Status.COMPLETED).count();
+        int failed = (int) list.stream().filter(r -> r.status() == TransferResultDto.Status.FAILED).count();
+        log.debug("Пакетный перевод завершён: выполнено {}, отклонено {}", completed, failed);
+        return new BatchTransferResultDto(completed, failed, list);
+    }
+
+    private static String validateBatchItem(TransferDto dto) {
+        if (dto == null || dto.fromCardId() == null || dto.toCardId() == null) {
+            return "Не указаны карты";
+        }
+        if (dto.fromCardId().equals(dto.toCardId())) {
+            return "Карты совпадают";
+        }
+        if (dto.amount() == null || dto.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Сумма должна быть больше 0";
+        }
+        return null;
+    }
+
+    /**
+     * Применяет переводы пакета к заблокированным картам. Изменённые карты
+     * записываются при фиксации транзакции пакетными UPDATE
+     *
+     * @return false, если пакет должен быть отменён целиком
+     */
+    private boolean applyBatch(Long userId, List<TransferDto> transfers, TransferResultDto[] results,
+                               TreeSet<Long> cardIds, boolean allOrNothing) {
+        Map<Long, Card> cards = cardRepository.findAllByIdInAndOwnerIdForUpdate(cardIds, userId)
+                .stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+        Map<Long, BigDecimal> pending = unappliedDeltas(cards.values());
+        var touched = new TreeSet<Long>();
+        for (int i = 0; i < transfers.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            var dto = transfers.get(i);
+            var from = cards.get(dto.fromCardId());
+            var to = cards.get(dto.toCardId());
+            String error = null;
+            if (from == null || to == null) {
+                error = "Карта не найдена";
+            } else if (from.getStatus() != CardStatus.ACTIVE || to.getStatus() != CardStatus.ACTIVE) {
+                error = "Обе карты должны быть активированы";
+            } else if (from.getBalance().add(pending.getOrDefault(from.getId(), BigDecimal.ZERO))
+                    .compareTo(dto.amount()) < 0) {
+                error = "Недостаточно средств";
+            }
+            if (error != null) {
+                results[i] = new TransferResultDto(i, TransferResultDto.Status.FAILED, error);
+                if (allOrNothing) {
+                    return false;
+                }
+                continue;
+            }
+            from.setBalance(from.getBalance().subtract(dto.amount()));
+            to.setBalance(to.getBalance().add(dto.amount()));
+            touched.add(from.getId());
+            touched.add(to.getId());
+            ledgerWriter.recordTransfer(from.getId(), to.getId(), dto.amount());
+            results[i] = new TransferResultDto(i, TransferResultDto.Status.COMPLETED, null);
+        }
+        cardRepository.saveAll(touched.stream().map(cards::get).toList());
+        return true;
+    }
+
+    /**
+     * Списывает и зачисляет сумму перевода. Строки карт блокируются
+     * в порядке возрастания id, чтобы встречные переводы не взаимоблокировались.
+     * Строка горячей карты-получателя не блокируется: сумма зачисляется на шард
+     */
+    private void moveBalance(Long userId, TransferDto dto) {
+        if (hotCardRegistry.isHot(dto.toCardId())) {
+            var from = lockOwnedCard(userId, dto.fromCardId());
+            var to = cardRepository.findByIdAndOwnerId(dto.toCardId(), userId)
+                    .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
+            applyTransfer(from, to, dto.amount(), true);
+            return;
+        }
+        boolean fromFirst = dto.fromCardId() < dto.toCardId();
+        var first = lockOwnedCard(userId, fromFirst ? dto.fromCardId() : dto.toCardId());
+        var second = lockOwnedCard(userId, fromFirst ? dto.toCardId() : dto.fromCardId());
+        applyTransfer(fromFirst ? first : second, fromFirst ? second : first, dto.amount());
+    }
+
+    /**
+     * Читает карты без блокировок. Параллельное изменение любой из карт
+     * обнаруживается по версии строки при фиксации транзакции
+     */
+    private void moveBalanceOptimistic(Long userId, TransferDto dto) {
+        var from = cardRepository.findByIdAndOwnerId(dto.fromCardId(), userId)
                 .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
-        var to = cardRepository.findByIdAndOwnerId(userId, dto.toCardId())
+        var to = cardRepository.findByIdAndOwnerId(dto.toCardId(), userId)
+                .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
+        applyTransfer(from, to, dto.amount());
+    }
+
+    private void moveBalanceAtomic(Long userId, TransferDto dto) {
+        var result = BalanceMoveResult.valueOf(
+                cardRepository.moveBalance(userId, dto.fromCardId(), dto.toCardId(), dto.amount()));
+        switch (result) {
+            case CARD_NOT_FOUND -> throw new CardNotFoundException("Карта не найдена");
+            case CARD_INACTIVE -> throw new InvalidTransferException("Обе карты должны быть активированы");
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException("Недостаточно средств");
+            case OK -> ledgerWriter.recordTransfer(dto.fromCardId(), dto.toCardId(), dto.amount());
+        }
+    }
+
+    /**
+     * Блокирует только строку карты-отправителя: доступный остаток равен снимку
+     * баланса плюс неучтённые операции по карте. Зачисление лишь добавляет
+     * запись в журнал, поэтому строка карты-получателя не блокируется и не
+     * изменяется, и входящие переводы на одну карту не выстраиваются в очередь
+     */
+    private void moveBalanceLedger(Long userId, TransferDto dto) {
+        var from = lockOwnedCard(userId, dto.fromCardId());
+        var to = cardRepository.findByIdAndOwnerId(dto.toCardId(), userId)
                 .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
         if (from.getStatus() != CardStatus.ACTIVE || to.getStatus() != CardStatus.ACTIVE) {
             throw new InvalidTransferException("Обе карты должны быть активированы");
         }
-        if (from.getBalance().compareTo(dto.amount()) < 0) {
+        if (liveBalance(from).compareTo(dto.amount()) < 0) {
+            throw new InsufficientFundsException("Недостаточно средств");
+        }
+        ledgerWriter.appendPending(from.getId(), to.getId(), dto.amount());
+    }
+
+    private void applyTransfer(Card from, Card to, BigDecimal amount) {
+        applyTransfer(from, to, amount, false);
+    }
+
+    /**
+     * @param recipientUnlocked строка получателя прочитана без блокировки и без
+     *                          проверки версии: сумма зачисляется только на шард
+     *                          или атомарным UPDATE
+     */
+    private void applyTransfer(Card from, Card to, BigDecimal amount, boolean recipientUnlocked) {
+        if (from.getStatus() != CardStatus.ACTIVE || to.getStatus() != CardStatus.ACTIVE) {
+            throw new InvalidTransferException("Обе карты должны быть активированы");
+        }
+        if (liveBalance(from).compareTo(amount) < 0) {
             throw new InsufficientFundsException("Недостаточно средств");
         }
-        from.setBalance(from.getBalance().subtract(dto.amount()));
-        to.setBalance(to.getBalance().add(dto.amount()));
+        from.setBalance(from.getBalance().subtract(amount));
         cardRepository.save(from);
+        credit(to, amount, recipientUnlocked);
+        ledgerWriter.recordTransfer(from.getId(), to.getId(), amount);
+    }
+
+    /**
+     * Зачисляет сумму на случайный шард горячей карты, не изменяя её строку.
+     * Если шардов уже нет (режим выключен параллельно или реестр горячих карт
+     * устарел), сумма зачисляется на основную строку. Незаблокированная строка
+     * при этом не перезаписывается прочитанной копией: её версия могла измениться,
+     * и сохранение завершилось бы конфликтом, поэтому зачисление идёт одним UPDATE
+     */
+    private void credit(Card to, BigDecimal amount, boolean unlocked) {
+        if (to.isHot() && cardBalanceShardRepository.credit(to.getId(),
+                ThreadLocalRandom.current().nextInt(to.getBalanceShards()), amount)) {
+            return;
+        }
+        if (unlocked) {
+            cardRepository.creditBalance(to.getId(), amount);
+            return;
+        }
+        to.setBalance(to.getBalance().add(amount));
         cardRepository.save(to);
-        log.debug("Перевод выполнен");
+    }
+
+    private Card lockOwnedCard(Long userId, Long cardId) {
+        return cardRepository.findByIdAndOwnerIdForUpdate(cardId, userId)
+                .orElseThrow(() -> new CardNotFoundException("Карта не найдена"));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CardDto> getUserCards(Long ownerId, CardStatus status, Pageable pageable) {
         var page = (status == null)
-                ? cardRepository.findByOwnerId(ownerId, pageable)
-                : cardRepository.findByOwnerIdAndStatus(ownerId, status, pageable);
-        return page.map(c -> new CardDto(
-                c.getId(),
-                c.getOwner().getId(),
-                CardMasker.mask(cardCrypto.decrypt(c.getCardNumber())),
-                c.getStatus(),
-                c.getBalance()
-        ));
+                ? cardRepository.findListItemsByOwnerId(ownerId, pageable)
+                : cardRepository.findListItemsByOwnerIdAndStatus(ownerId, status, pageable);
+        return new PageImpl<>(toDtos(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CardSliceDto getUserCardsSlice(Long ownerId, CardStatus status, String cursor, int size) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new InvalidPageRequestException("Размер порции должен быть от 1 до " + MAX_SLICE_SIZE);
+        }
+        long afterId = cursor == null || cursor.isEmpty() ? 0L : CardCursor.decode(cursor);
+        var pageable = PageRequest.of(0, size);
+        var slice = (status == null)
+                ? cardRepository.findListItemsByOwnerIdAfter(ownerId, afterId, pageable)
+                : cardRepository.findListItemsByOwnerIdAndStatusAfter(ownerId, status, afterId, pageable);
+        var content = toDtos(slice.getContent());
+        String nextCursor = slice.hasNext() ? CardCursor.encode(content.get(content.size() - 1).id()) : null;
+        return new CardSliceDto(content, nextCursor, slice.hasNext());
+    }
+
+    /**
+     * Собирает DTO выдачи из проекций с живым балансом
+     */
+    private List<CardDto> toDtos(List<CardListItem> items) {
+        var ids = items.stream().map(CardListItem::getId).toList();
+        var hot = items.stream().filter(c -> c.getBalanceShards() > 0).map(CardListItem::getId).toList();
+        var deltas = unappliedDeltas(ids, hot);
+        return items.stream()
+                .map(c -> new CardDto(
+                        c.getId(),
+                        c.getOwnerId(),
+                        CardMasker.maskLast4(c.getLast4()),
+                        c.getStatus(),
+                        c.getBalance().add(deltas.getOrDefault(c.getId(), BigDecimal.ZERO))))
+                .toList();
+    }
+
+    /**
+     * Живой баланс карты: снимок плюс операции журнала, ещё не перенесённые в него,
+     * и шарды горячей карты. Он же - доступный для списания остаток во всех
+     * режимах переводов, в том числе в пакетных переводах. Основная строка
+     * горячей карты может быть отрицательной: списания уменьшают её, а зачисления
+     * копятся в шардах
+     */
+    private BigDecimal liveBalance(Card card) {
+        return card.getBalance().add(unappliedDeltas(List.of(card)).getOrDefault(card.getId(), BigDecimal.ZERO));
+    }
+
+    /**
+     * Суммы, не отражённые в основной строке карт: неучтённые операции журнала и шарды горячих карт
+     */
+    private Map<Long, BigDecimal> unappliedDeltas(Collection<Card> cards) {
+        return unappliedDeltas(cards.stream().map(Card::getId).toList(),
+                cards.stream().filter(Card::isHot).map(Card::getId).toList());
+    }
+
+    private Map<Long, BigDecimal> unappliedDeltas(Collection<Long> cardIds, Collection<Long> hot) {
+        var deltas = new HashMap<>(pendingDeltas(cardIds));
+        if (!hot.isEmpty()) {
+            cardBalanceShardRepository.sumByCardIds(hot).forEach((id, sum) -> deltas.merge(id, sum, BigDecimal::add));
+        }
+        return deltas;
+    }
+
+    /**
+     * Неучтённые операции журнала по картам
+     */
+    private Map<Long, BigDecimal> pendingDeltas(Collection<Long> cardIds) {
+        if (cardIds.isEmpty() || journalSettled()) {
+            return Map.of();
+        }
+        return transactionRepository.sumPendingByCardIds(cardIds).stream()
+                .collect(Collectors.toMap(PendingDelta::getCardId, PendingDelta::getDelta));
+    }
+
+    /**
+     * Нет ли в журнале неучтённых операций. Их пишет только режим LEDGER; после
+     * переключения в другой режим оставшиеся операции переносит в снимки
+     * {@link BalanceSnapshotJob}, и до этого они учитываются в доступном остатке.
+     * Новых неучтённых операций вне режима LEDGER не появляется, поэтому пустой
+     * журнал запоминается и больше не проверяется
+     */
+    private boolean journalSettled() {
+        if (transferMode == TransferMode.LEDGER) {
+            return false;
+        }
+        if (!journalSettled) {
+            journalSettled = !transactionRepository.existsBySettledFalse();
+        }
+        return journalSettled;
     }
 }
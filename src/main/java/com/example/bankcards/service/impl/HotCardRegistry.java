@@ -0,0 +1,65 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.repository.CardRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Закешированный в памяти список горячих карт.
+ * По нему перевод заранее решает, какие полосатые блокировки брать и
+ * выполнять ли атомарный перевод через шарды. Фактический признак
+ * проверяется по строке карты, поэтому устаревший список влияет только на
+ * производительность, а не на корректность
+ */
+@Component
+public class HotCardRegistry {
+
+    private final CardRepository cardRepository;
+    private volatile Set<Long> hotCardIds = ConcurrentHashMap.newKeySet();
+
+    public HotCardRegistry(CardRepository cardRepository) {
+        this.cardRepository = cardRepository;
+    }
+
+    public boolean isHot(Long cardId) {
+        return hotCardIds.contains(cardId);
+    }
+
+    /**
+     * Обновляет признак карты после фиксации текущей транзакции
+     */
+    public void updateAfterCommit(Long cardId, boolean hot) {
+        Runnable update = () -> {
+            if (hot) {
+                hotCardIds.add(cardId);
+            } else {
+                hotCardIds.remove(cardId);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    /**
+     * Перечитывает список из БД, чтобы подхватить изменения других экземпляров приложения
+     */
+    @Scheduled(fixedDelayString = "${app.card.hot.refresh-ms:30000}")
+    public void refresh() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ids.addAll(cardRepository.findHotCardIds());
+        hotCardIds = ids;
+    }
+}
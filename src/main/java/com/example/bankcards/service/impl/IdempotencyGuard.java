@@ -0,0 +1,170 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.exception.IdempotencyKeyReuseException;
+import com.example.bankcards.exception.InvalidTransferException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Защита перевода от повторного выполнения по ключу идемпотентности.
+ * Ключ фиксируется в БД вместе с переводом и хранится заданное время;
+ * перед обращением к БД проверяется ограниченный LRU-кеш уже выполненных
+ * ключей, поэтому большинство повторов не доходит ни до БД, ни до карт.
+ * <p>
+ * Сохраняются только успешные переводы: неудачный перевод откатывается вместе
+ * с ключом, и повтор с тем же ключом выполняется заново
+ */
+@Component
+public class IdempotencyGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyGuard.class);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Duration ttl;
+    private final Map<CacheKey, CacheEntry> cache;
+    private final Counter cacheHits;
+    private final Counter replays;
+
+    public IdempotencyGuard(IdempotencyKeyRepository idempotencyKeyRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${app.idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.cacheHits = Counter.builder("bank.idempotency.cache.hits")
+                .description("Повторы переводов, распознанные без обращения к БД")
+                .register(meterRegistry);
+        this.replays = Counter.builder("bank.idempotency.replays")
+                .description("Повторы переводов, не выполненные повторно")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверяет по кешу, выполнялся ли уже перевод с этим ключом
+     *
+     * @return {@code true}, если перевод уже выполнен
+     * @throws IdempotencyKeyReuseException если ключ использован для другого перевода
+     * @throws InvalidTransferException     если ключ пустой или слишком длинный
+     */
+    public boolean isCompleted(Long userId, String key, TransferDto dto) {
+        validateKey(key);
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(new CacheKey(userId, key));
+        }
+        if (entry == null || entry.expiresAtNanos() - System.nanoTime() < 0) {
+            return false;
+        }
+        checkSameRequest(entry.requestHash(), hash(dto));
+        cacheHits.increment();
+        replays.increment();
+        return true;
+    }
+
+    /**
+     * Занимает ключ в текущей транзакции перевода.
+     * Параллельный запрос с тем же ключом ждёт завершения транзакции, занявшей ключ
+     *
+     * @return {@code true}, если перевод нужно выполнить; {@code false}, если он уже выполнен
+     * @throws IdempotencyKeyReuseException если ключ использован для другого перевода
+     */
+    public boolean claim(Long userId, String key, TransferDto dto) {
+        var requestHash = hash(dto);
+        if (idempotencyKeyRepository.claim(userId, key, requestHash, ttl)) {
+            afterCommit(() -> remember(userId, key, requestHash));
+            return true;
+        }
+        var storedHash = idempotencyKeyRepository.findRequestHash(userId, key)
+                .orElseThrow(() -> new TransferConflictException(
+                        "Ключ идемпотентности изменён параллельной операцией, повторите запрос"));
+        checkSameRequest(storedHash, requestHash);
+        remember(userId, key, storedHash);
+        replays.increment();
+        return false;
+    }
+
+    /**
+     * Удаляет просроченные ключи из БД
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyKeyRepository.deleteExpired();
+        if (deleted > 0) {
+            log.debug("Удалено просроченных ключей идемпотентности: {}", deleted);
+        }
+    }
+
+    private void remember(Long userId, String key, String requestHash) {
+        var entry = new CacheEntry(requestHash, System.nanoTime() + ttl.toNanos());
+        synchronized (cache) {
+            cache.put(new CacheKey(userId, key), entry);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void validateKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidTransferException("Ключ идемпотентности должен содержать от 1 до "
+                    + MAX_KEY_LENGTH + " символов");
+        }
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyReuseException("Ключ идемпотентности уже использован для другого перевода");
+        }
+    }
+
+    static String hash(TransferDto dto) {
+        var canonical = dto.fromCardId() + "|" + dto.toCardId() + "|" + dto.amount().stripTrailingZeros().toPlainString();
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private record CacheKey(Long userId, String key) {
+    }
+
+    private record CacheEntry(String requestHash, long expiresAtNanos) {
+    }
+}
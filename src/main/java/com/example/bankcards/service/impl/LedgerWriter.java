@@ -0,0 +1,224 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionType;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная (write-behind) запись журнала операций.
+ * Записи перевода накапливаются в рамках транзакции и попадают в очередь только
+ * после её фиксации; фоновый поток собирает их в пакеты по размеру или по
+ * истечении окна ожидания и вставляет одним JDBC-пакетом. Балансы карт при этом
+ * по-прежнему обновляются синхронно.
+ * <p>
+ * Записи, стоящие в очереди, теряются при аварийной остановке процесса;
+ * при штатной остановке очередь дописывается
+ */
+@Component
+public class LedgerWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerWriter.class);
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final TransactionRepository transactionRepository;
+    private final BlockingQueue<Transaction> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public LedgerWriter(TransactionRepository transactionRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.ledger.write-behind.batch-size:500}") int batchSize,
+                        @Value("${app.ledger.write-behind.max-delay-ms:50}") long maxDelayMs,
+                        @Value("${app.ledger.write-behind.queue-capacity:100000}") int queueCapacity) {
+        this.transactionRepository = transactionRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.written = Counter.builder("bank.ledger.written")
+                .description("Записи журнала, вставленные в БД")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("bank.ledger.dropped")
+                .description("Записи журнала, которые не удалось записать")
+                .register(meterRegistry);
+        Gauge.builder("bank.ledger.queue.size", queue, BlockingQueue::size)
+                .description("Записи журнала, ожидающие вставки")
+                .register(meterRegistry);
+        this.flusher = new Thread(this::runFlusher, "ledger-writer");
+        this.flusher.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        var rest = new ArrayList<Transaction>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += batchSize) {
+            flush(rest.subList(i, Math.min(rest.size(), i + batchSize)));
+        }
+    }
+
+    /**
+     * Добавляет в журнал записи списания и зачисления перевода.
+     * Внутри транзакции записи попадут в очередь только после её фиксации
+     *
+     * @param fromCardId идентификатор карты-отправителя
+     * @param toCardId   идентификатор карты-получателя
+     * @param amount     сумма перевода
+     */
+    public void recordTransfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        var entries = transferEntries(fromCardId, toCardId, amount, true);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(entries);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        var pending = (List<Transaction>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new PendingEntries(pending));
+        }
+        pending.addAll(entries);
+    }
+
+    /**
+     * Синхронно вставляет в текущей транзакции записи перевода, ещё не учтённые
+     * в балансах карт. Балансы обновит задание переноса в снимки
+     *
+     * @param fromCardId идентификатор карты-отправителя
+     * @param toCardId   идентификатор карты-получателя
+     * @param amount     сумма перевода
+     * @see BalanceSnapshotJob
+     */
+    public void appendPending(Long fromCardId, Long toCardId, BigDecimal amount) {
+        transactionRepository.insertAll(transferEntries(fromCardId, toCardId, amount, false));
+    }
+
+    private static List<Transaction> transferEntries(Long fromCardId, Long toCardId, BigDecimal amount,
+                                                     boolean settled) {
+        var transferId = UUID.randomUUID();
+        var now = Instant.now();
+        return List.of(
+                new Transaction(transferId, fromCardId, toCardId, amount.negate(), TransactionType.DEBIT, now, settled),
+                new Transaction(transferId, toCardId, fromCardId, amount, TransactionType.CREDIT, now, settled));
+    }
+
+    private void enqueue(List<Transaction> entries) {
+        for (Transaction entry : entries) {
+            if (!queue.offer(entry)) {
+                dropped.increment();
+                log.error("Очередь журнала переполнена, запись перевода {} по карте {} не сохранена",
+                        entry.getTransferId(), entry.getCardId());
+            }
+        }
+    }
+
+    private void runFlusher() {
+        var batch = new ArrayList<Transaction>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Transaction first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) {
+                        break;
+                    }
+                    Transaction next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Transaction> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionRepository.insertAll(batch);
+                written.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_FLUSH_ATTEMPTS) {
+                    dropped.increment(batch.size());
+                    log.error("Не удалось записать {} записей журнала", batch.size(), e);
+                    return;
+                }
+                log.warn("Ошибка записи журнала, попытка {}", attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Записи журнала текущей транзакции; передаются в очередь после фиксации
+     */
+    private final class PendingEntries implements TransactionSynchronization {
+
+        private final List<Transaction> entries;
+
+        private PendingEntries(List<Transaction> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(LedgerWriter.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(LedgerWriter.this, entries);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LedgerWriter.this);
+            if (status == STATUS_COMMITTED) {
+                enqueue(entries);
+            }
+        }
+    }
+}
@@ -7,7 +7,9 @@ import com.example.bankcards.exception.InvalidUserDataException;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.exception.UsernameAlreadyExistsException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenEpochs;
 import com.example.bankcards.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,19 +20,24 @@ import java.util.List;
 
 @Service
 @Transactional
+@Timed(value = "bank.user.service", histogram = true)
 public class UserServiceImpl implements UserService {
 
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenEpochs tokenEpochs;
     private static final Logger log = LoggerFactory.getLogger(UserServiceImpl.class);
 
-    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           TokenEpochs tokenEpochs) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenEpochs = tokenEpochs;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UserDto> getAllUsers() {
         log.debug("поиск всех пользователей");
         return userRepository.findAll()
@@ -40,6 +47,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UserDto getUserById(long id) {
         log.debug("поиск пользователя с id: {}", id);
         var u = userRepository.findById(id)
@@ -73,17 +81,25 @@ public class UserServiceImpl implements UserService {
         log.debug("Админ обновляет пользователя: {}", userId);
         var u = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь не найден"));
+        boolean revokeTokens = false;
         if (dto.username() != null && !dto.username().equals(u.getUsername())) {
             if (userRepository.existsByUsername(dto.username())) {
                 throw new UsernameAlreadyExistsException("пользователь с таким именем уже существует");
             }
             u.setUsername(dto.username());
+            revokeTokens = true;
         }
         if (dto.password() != null) {
             u.setPassword(passwordEncoder.encode(dto.password()));
+            revokeTokens = true;
         }
-        if (dto.role() != null) {
+        if (dto.role() != null && dto.role() != u.getRole()) {
             u.setRole(dto.role());
+            revokeTokens = true;
+        }
+        if (revokeTokens) {
+            u.setTokenVersion(u.getTokenVersion() + 1);
+            tokenEpochs.advanceAfterCommit(u.getId(), u.getTokenVersion());
         }
         var savedUser = userRepository.save(u);
         log.debug("Админ обновил пользователя: {}", userId);
@@ -93,10 +109,10 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteUser(long userId) {
         log.debug("Админ удаляет пользователя: {}", userId);
-        if (!userRepository.existsById(userId)) {
-            throw new UserNotFoundException("Пользователь не найден");
-        }
-        userRepository.deleteById(userId);
+        var u = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("Пользователь не найден"));
+        userRepository.delete(u);
+        tokenEpochs.revoke(u.getId());
         log.debug("Админ удалил пользователя: {}", userId);
     }
 }
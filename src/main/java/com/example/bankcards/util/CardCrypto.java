@@ -4,11 +4,29 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Шифрование номеров карт (AES/GCM). Хранимый формат - {@code base64(iv):base64(ct)}.
+ * <p>
+ * Расшифровка выполняется для каждой карты в списках, поэтому экземпляры
+ * {@link Cipher} и буферы не создаются на каждый вызов, а берутся из пула:
+ * строка разбирается за один проход без {@code split}, Base64 декодируется
+ * сразу в буфер, открытый текст пишется в буфер без промежуточных массивов.
+ * После каждого вызова буферы затираются: открытый номер карты не остаётся
+ * в объектах пула
+ */
 @Component
 public class CardCrypto {
 
@@ -16,9 +34,21 @@ public class CardCrypto {
     private static final String TRANS = "AES/GCM/NoPadding";
     private static final int GCM_TAG_BITS = 128;
     private static final int IV_LEN = 12;
+    private static final int MAX_POOLED_WORKERS = 64;
+    private static final int[] BASE64_VALUES = new int[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
 
     private final SecretKeySpec key;
     private final SecureRandom secureRandom = new SecureRandom();
+    private final Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledWorkers = new AtomicInteger();
 
     public CardCrypto(@Value("${app.card.crypto.key}") String b64key) {
         byte[] k = Base64.getDecoder().decode(b64key);
@@ -26,29 +56,130 @@ public class CardCrypto {
     }
 
     public String encrypt(String plain) {
+        byte[] plainBytes = plain.getBytes(StandardCharsets.UTF_8);
+        Worker w = acquire();
         try {
-            byte[] iv = new byte[IV_LEN];
-            secureRandom.nextBytes(iv);
-            Cipher c = Cipher.getInstance(TRANS);
-            c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-            byte[] ct = c.doFinal(plain.getBytes());
-            return Base64.getEncoder().encodeToString(iv) + ":" +
+            secureRandom.nextBytes(w.iv);
+            w.cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, w.iv));
+            byte[] ct = w.cipher.doFinal(plainBytes);
+            return Base64.getEncoder().encodeToString(w.iv) + ":" +
                     Base64.getEncoder().encodeToString(ct);
-        } catch (Exception e) {
+        } catch (GeneralSecurityException e) {
             throw new IllegalStateException("Card encrypt failed", e);
+        } finally {
+            Arrays.fill(plainBytes, (byte) 0);
+            release(w);
         }
     }
 
     public String decrypt(String stored) {
+        int sep = stored.indexOf(':');
+        if (sep < 0) {
+            throw new IllegalStateException("Card decrypt failed: no iv separator");
+        }
+        Worker w = acquire();
         try {
-            String[] parts = stored.split(":");
-            byte[] iv = Base64.getDecoder().decode(parts[0]);
-            byte[] ct = Base64.getDecoder().decode(parts[1]);
-            Cipher c = Cipher.getInstance(TRANS);
-            c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-            return new String(c.doFinal(ct));
-        } catch (Exception e) {
+            byte[] in = w.input(stored.length());
+            int ivLen = decodeBase64(stored, 0, sep, in, 0);
+            int ctLen = decodeBase64(stored, sep + 1, stored.length(), in, ivLen);
+            w.cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, in, 0, ivLen));
+            byte[] out = w.output(ctLen);
+            int len = w.cipher.doFinal(in, ivLen, ctLen, out, 0);
+            return new String(out, 0, len, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
             throw new IllegalStateException("Card decrypt failed", e);
+        } finally {
+            w.wipe();
+            release(w);
+        }
+    }
+
+    private Worker acquire() {
+        Worker w = workers.poll();
+        if (w == null) {
+            return new Worker();
+        }
+        pooledWorkers.decrementAndGet();
+        return w;
+    }
+
+    private void release(Worker w) {
+        if (pooledWorkers.incrementAndGet() <= MAX_POOLED_WORKERS) {
+            workers.offer(w);
+        } else {
+            pooledWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Декодирует Base64 (стандартный алфавит, необязательное дополнение {@code =})
+     * из части строки в массив
+     *
+     * @return число записанных байтов
+     */
+    private static int decodeBase64(String s, int from, int to, byte[] dst, int offset) {
+        while (to > from && s.charAt(to - 1) == '=') {
+            to--;
+        }
+        int acc = 0;
+        int bits = 0;
+        int pos = offset;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            int v = ch < BASE64_VALUES.length ? BASE64_VALUES[ch] : -1;
+            if (v < 0) {
+                throw new IllegalArgumentException("Illegal base64 character at " + i);
+            }
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                dst[pos++] = (byte) (acc >> bits);
+            }
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Экземпляр шифра с буферами; используется одним потоком за раз
+     */
+    private static final class Worker {
+
+        private final Cipher cipher;
+        private final byte[] iv = new byte[IV_LEN];
+        private byte[] in = new byte[64];
+        private byte[] out = new byte[64];
+
+        private Worker() {
+            try {
+                this.cipher = Cipher.getInstance(TRANS);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                throw new IllegalStateException("Cipher " + TRANS + " is not available", e);
+            }
+        }
+
+        private byte[] input(int encodedLength) {
+            int needed = encodedLength * 3 / 4 + 3;
+            if (in.length < needed) {
+                in = new byte[needed];
+            }
+            return in;
+        }
+
+        private byte[] output(int ciphertextLength) {
+            if (out.length < ciphertextLength) {
+                out = new byte[ciphertextLength];
+            }
+            return out;
+        }
+
+        /**
+         * Затирает буферы, чтобы номер карты не оставался в памяти пула
+         * между вызовами
+         */
+        private void wipe() {
+            Arrays.fill(in, (byte) 0);
+            Arrays.fill(out, (byte) 0);
         }
     }
 }
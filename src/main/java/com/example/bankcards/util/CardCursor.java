@@ -0,0 +1,43 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор постраничного просмотра карт.
+ * Кодирует id последней выданной карты; клиент передаёт курсор обратно без изменений
+ */
+public final class CardCursor {
+
+    private static final String PREFIX = "c1:";
+
+    private CardCursor() {}
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Возвращает id последней выданной карты
+     *
+     * @throws InvalidPageRequestException если курсор повреждён
+     */
+    public static long decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!value.startsWith(PREFIX)) {
+                throw new InvalidPageRequestException("Некорректный курсор");
+            }
+            long lastId = Long.parseLong(value.substring(PREFIX.length()));
+            if (lastId < 0) {
+                throw new InvalidPageRequestException("Некорректный курсор");
+            }
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Некорректный курсор");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.CreateCardDto;
+
+import java.time.LocalDate;
+
+/**
+ * Проверки данных выпускаемой карты, общие для выпуска одной карты и пакета
+ */
+public final class CardDataRules {
+    private CardDataRules() {}
+
+    /**
+     * @return описание ошибки или {@code null}, если срок действия и баланс корректны
+     */
+    public static String violation(CreateCardDto dto, LocalDate today) {
+        if (dto.expiryDate() == null || dto.expiryDate().isBefore(today)) {
+            return "срок действия не указан или истёк";
+        }
+        if (dto.balance() == null || dto.balance().signum() < 0) {
+            return "баланс не указан или отрицательный";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Полосатый (striped) менеджер блокировок карт внутри процесса.
+ * Карта отображается на одну из фиксированного числа полос по идентификатору,
+ * поэтому конкуренция стоит задержки только операциям над одними и теми же
+ * (или попавшими в одну полосу) картами, а не всему сервису.
+ * <p>
+ * Полосы всегда захватываются по возрастанию номера полосы: при коллизиях
+ * двух карт в одной полосе порядок по id карты не гарантирует отсутствия
+ * взаимоблокировок, а порядок по полосам гарантирует
+ */
+@Component
+public class CardLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public CardLockManager(@Value("${app.card.lock.stripes:1024}") int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество полос должно быть больше 0");
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Выполняет действие, удерживая блокировки всех переданных карт
+     *
+     * @param action  действие под блокировкой
+     * @param cardIds идентификаторы карт
+     * @return результат действия
+     */
+    public <T> T callWithLocks(Supplier<T> action, long... cardIds) {
+        int[] order = stripesOf(cardIds);
+        for (int i = 0; i < order.length; i++) {
+            stripes[order[i]].lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int i = order.length - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие, удерживая блокировки всех переданных карт
+     *
+     * @param action  действие под блокировкой
+     * @param cardIds идентификаторы карт
+     */
+    public void runWithLocks(Runnable action, long... cardIds) {
+        callWithLocks(() -> {
+            action.run();
+            return null;
+        }, cardIds);
+    }
+
+    int stripeOf(long cardId) {
+        long h = cardId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int[] stripesOf(long... cardIds) {
+        int[] result = new int[cardIds.length];
+        for (int i = 0; i < cardIds.length; i++) {
+            result[i] = stripeOf(cardIds[i]);
+        }
+        return Arrays.stream(result).sorted().distinct().toArray();
+    }
+}
@@ -15,4 +15,28 @@ public final class CardMasker {
         String last4 = design.substring(design.length() - 4);
         return "**** **** **** " + last4;
     }
+
+    /**
+     * Маскированный номер по сохранённым последним четырём цифрам,
+     * без расшифровки полного номера
+     */
+    public static String maskLast4(String last4) {
+        if (last4 == null || last4.length() != 4) {
+            return "****";
+        }
+        return "**** **** **** " + last4;
+    }
+
+    /**
+     * Последние четыре цифры номера карты
+     *
+     * @return цифры или {@code null}, если цифр в номере меньше четырёх
+     */
+    public static String last4(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        String digits = cardNumber.replaceAll("\\D", "");
+        return digits.length() < 4 ? null : digits.substring(digits.length() - 4);
+    }
 }
@@ -0,0 +1,87 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.TransferConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Повторяет операцию, завершившуюся конфликтом оптимистичной блокировки.
+ * Число попыток ограничено, между попытками выдерживается экспоненциальная
+ * пауза со случайным разбросом (full jitter), чтобы конфликтующие потоки
+ * не повторяли запросы синхронно.
+ * <p>
+ * Каждая попытка должна выполняться в собственной транзакции
+ */
+@Component
+public class OptimisticRetryExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticRetryExecutor.class);
+
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public OptimisticRetryExecutor(MeterRegistry meterRegistry,
+                                   @Value("${app.card.transfer.optimistic.max-attempts:5}") int maxAttempts,
+                                   @Value("${app.card.transfer.optimistic.backoff-ms:5}") long backoffMs,
+                                   @Value("${app.card.transfer.optimistic.max-backoff-ms:100}") long maxBackoffMs) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Число попыток должно быть больше 0");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = backoffMs * 1_000_000L;
+        this.maxBackoffNanos = maxBackoffMs * 1_000_000L;
+        this.conflicts = Counter.builder("bank.transfer.optimistic.conflicts")
+                .description("Конфликты версий при оптимистичных переводах")
+                .register(meterRegistry);
+        this.retries = Counter.builder("bank.transfer.optimistic.retries")
+                .description("Повторные попытки оптимистичных переводов")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("bank.transfer.optimistic.exhausted")
+                .description("Переводы, не выполненные после всех попыток")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет попытку, повторяя её при конфликте версий
+     *
+     * @param attempt попытка, выполняющаяся в собственной транзакции
+     * @return результат успешной попытки
+     * @throws TransferConflictException если все попытки завершились конфликтом
+     */
+    public <T> T execute(Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.increment();
+                if (i >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("Конфликт версий не разрешён за {} попыток", maxAttempts);
+                    throw new TransferConflictException("Карта изменена параллельной операцией, повторите запрос", e);
+                }
+                retries.increment();
+                backoff(i);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 20));
+        if (ceiling > 0) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordEncoderConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordEncoder encoder = new PasswordEncoderConfig().passwordEncoder(meterRegistry, "bcrypt", 5);
+
+    @Test
+    void legacyHashWithoutPrefix_matchesAndIsUpgraded() {
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    void hashWithLowerStrength_isUpgraded() {
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+        String current = encoder.encode("secret");
+
+        assertTrue(current.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.upgradeEncoding(weaker));
+        assertFalse(encoder.upgradeEncoding(current));
+    }
+
+    @Test
+    void switchingEncoder_upgradesBcryptHashes() {
+        PasswordEncoder pbkdf2 = new PasswordEncoderConfig().passwordEncoder(new SimpleMeterRegistry(), "pbkdf2", 5);
+        String bcrypt = encoder.encode("secret");
+
+        assertTrue(pbkdf2.matches("secret", bcrypt));
+        assertTrue(pbkdf2.upgradeEncoding(bcrypt));
+        assertTrue(pbkdf2.matches("secret", pbkdf2.encode("secret")));
+    }
+
+    @Test
+    void encodeAndMatches_areTimed() {
+        encoder.matches("secret", encoder.encode("secret"));
+
+        assertEquals(1, meterRegistry.get("bank.auth.password.encode").timer().count());
+        assertEquals(1, meterRegistry.get("bank.auth.password.matches").timer().count());
+    }
+
+    @Test
+    void unknownEncoder_isRejected() {
+        assertThrows(IllegalStateException.class,
+                () -> new PasswordEncoderConfig().passwordEncoder(new SimpleMeterRegistry(), "md5", 10));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.config.datasource;
+
+import com.example.bankcards.exception.ConnectionLimitExceededException;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionLimitingDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+
+    @Test
+    void closingConnection_releasesPermitOnce() throws Exception {
+        Connection physical = mock(Connection.class);
+        when(target.getConnection()).thenReturn(physical);
+        var dataSource = new ConnectionLimitingDataSource(target, 2, 0, 10);
+
+        Connection con = dataSource.getConnection();
+        assertEquals(1, dataSource.availablePermits());
+        con.close();
+        con.close();
+
+        assertEquals(2, dataSource.availablePermits());
+        verify(physical, times(2)).close();
+    }
+
+    @Test
+    void fullWaitQueue_isRejectedImmediately() throws Exception {
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        var dataSource = new ConnectionLimitingDataSource(target, 1, 0, 10_000);
+        dataSource.getConnection();
+
+        long started = System.nanoTime();
+        assertThrows(ConnectionLimitExceededException.class, dataSource::getConnection);
+
+        assertEquals(0, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    @Test
+    void waiter_getsConnectionReleasedByAnother() throws Exception {
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        var dataSource = new ConnectionLimitingDataSource(target, 1, 1, 5_000);
+        Connection first = dataSource.getConnection();
+
+        var second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (dataSource.waiters() == 0) {
+            Thread.onSpinWait();
+        }
+        first.close();
+
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitTimeout_isReportedAsTransientFailure() throws Exception {
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        var dataSource = new ConnectionLimitingDataSource(target, 1, 1, 50);
+        dataSource.getConnection();
+
+        assertThrows(ConnectionLimitExceededException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.waiters());
+    }
+
+    @Test
+    void failedConnection_returnsPermit() throws Exception {
+        when(target.getConnection()).thenThrow(new SQLException("down"));
+        var dataSource = new ConnectionLimitingDataSource(target, 1, 0, 10);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+
+        assertEquals(1, dataSource.availablePermits());
+    }
+
+    @Test
+    void limiter_sizesPermitsFromEachPool() {
+        var limiter = new ConnectionLimiter(0, 10);
+        try (var primary = new HikariDataSource(); var replica = new HikariDataSource()) {
+            primary.setMaximumPoolSize(20);
+            replica.setMaximumPoolSize(5);
+
+            assertEquals(20, ((ConnectionLimitingDataSource) limiter.limit(primary)).availablePermits());
+            assertEquals(5, ((ConnectionLimitingDataSource) limiter.limit(replica)).availablePermits());
+        }
+    }
+}
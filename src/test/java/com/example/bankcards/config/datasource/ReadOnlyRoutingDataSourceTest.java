@@ -0,0 +1,142 @@
+package com.example.bankcards.config.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadOnlyRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final ReplicaNode replicaNode = new ReplicaNode("replica-0", replica);
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+    private final DataSource dataSource = routing();
+
+    @AfterEach
+    void clearState() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransaction_usesReplica() throws Exception {
+        replicaNode.update(true, 0, 100);
+        when(replica.getConnection()).thenReturn(mock(Connection.class));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (Connection con = dataSource.getConnection()) {
+            con.createStatement();
+        }
+
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void writeOrNoTransaction_usesPrimary() throws Exception {
+        replicaNode.update(true, 0, 100);
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+
+        try (Connection con = dataSource.getConnection()) {
+            con.createStatement();
+        }
+
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void connectionIsResolvedOnFirstStatement_afterReadOnlyFlagIsSet() throws Exception {
+        replicaNode.update(true, 0, 100);
+        when(replica.getConnection()).thenReturn(mock(Connection.class));
+
+        try (Connection con = dataSource.getConnection()) {
+            // транзакция помечается read-only уже после получения соединения менеджером транзакций
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            con.createStatement();
+        }
+
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void readOnlyTransaction_withoutAvailableReplica_fallsBackToPrimary() throws Exception {
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (Connection con = dataSource.getConnection()) {
+            con.createStatement();
+        }
+
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void readAfterCommittedWrite_sticksToPrimaryForSameUser() throws Exception {
+        replicaNode.update(true, 0, 100);
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        when(replica.getConnection()).thenReturn(mock(Connection.class));
+        authenticate("user");
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try (Connection con = dataSource.getConnection()) {
+            con.createStatement();
+        }
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection con = dataSource.getConnection()) {
+            con.createStatement();
+        }
+        authenticate("other");
+        try (Connection con = dataSource.getConnection()) {
+            con.createStatement();
+        }
+
+        verify(primary, times(2)).getConnection();
+        verify(replica).getConnection();
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private DataSource routing() {
+        var routing = new ReadOnlyRoutingDataSource(
+                new ReplicaSelector(List.of(replicaNode), ReplicaBalancing.ROUND_ROBIN), tracker);
+        routing.setTargetDataSources(Map.of(
+                ReadOnlyRoutingDataSource.PRIMARY, primary,
+                replicaNode.name(), replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        var proxy = new LazyConnectionDataSourceProxy(routing);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+}
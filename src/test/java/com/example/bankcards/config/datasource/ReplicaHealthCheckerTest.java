@@ -0,0 +1,71 @@
+package com.example.bankcards.config.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaHealthCheckerTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final ReplicaNode node = new ReplicaNode("replica-0", dataSource);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReplicaHealthChecker checker = new ReplicaHealthChecker(
+            List.of(node), new ReadYourWritesTracker(Duration.ofSeconds(5)), 5_000, meterRegistry);
+
+    @Test
+    void replicaWithinLag_becomesAvailable() throws Exception {
+        replicaReportsLag(1_200);
+
+        checker.check();
+
+        assertTrue(node.isAvailable());
+        assertEquals(1_200, node.lagMillis());
+        assertEquals(1.0, meterRegistry.get("bank.datasource.replica.available").gauge().value());
+    }
+
+    @Test
+    void laggingReplica_isExcluded() throws Exception {
+        node.update(true, 0, 100);
+        replicaReportsLag(30_000);
+
+        checker.check();
+
+        assertFalse(node.isAvailable());
+        assertEquals(30_000, node.lagMillis());
+    }
+
+    @Test
+    void unreachableReplica_isExcluded() throws Exception {
+        node.update(true, 0, 100);
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        checker.check();
+
+        assertFalse(node.isAvailable());
+    }
+
+    private void replicaReportsLag(long lagMillis) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMillis);
+    }
+}
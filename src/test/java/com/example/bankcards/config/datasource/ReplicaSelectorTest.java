@@ -0,0 +1,47 @@
+package com.example.bankcards.config.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class ReplicaSelectorTest {
+
+    private final ReplicaNode first = new ReplicaNode("replica-0", mock(DataSource.class));
+    private final ReplicaNode second = new ReplicaNode("replica-1", mock(DataSource.class));
+    private final ReplicaNode third = new ReplicaNode("replica-2", mock(DataSource.class));
+
+    @Test
+    void roundRobin_alternatesAndSkipsUnavailable() {
+        first.update(true, 0, 300);
+        second.update(false, 60_000, 100);
+        third.update(true, 0, 200);
+        var selector = new ReplicaSelector(List.of(first, second, third), ReplicaBalancing.ROUND_ROBIN);
+
+        assertSame(first, selector.select());
+        assertSame(third, selector.select());
+        assertSame(third, selector.select());
+        assertSame(first, selector.select());
+    }
+
+    @Test
+    void leastLatency_choosesFastestAvailable() {
+        first.update(true, 0, 300);
+        second.update(false, 60_000, 100);
+        third.update(true, 0, 200);
+        var selector = new ReplicaSelector(List.of(first, second, third), ReplicaBalancing.LEAST_LATENCY);
+
+        assertSame(third, selector.select());
+    }
+
+    @Test
+    void noAvailableReplica_returnsNull() {
+        var selector = new ReplicaSelector(List.of(first, second), ReplicaBalancing.ROUND_ROBIN);
+
+        assertNull(selector.select());
+    }
+}
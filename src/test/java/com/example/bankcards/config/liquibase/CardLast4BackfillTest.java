@@ -0,0 +1,28 @@
+package com.example.bankcards.config.liquibase;
+
+import com.example.bankcards.util.CardCrypto;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardLast4BackfillTest {
+
+    private final CardCrypto cardCrypto = new CardCrypto("bXktMzItYnl0ZS1zZWNyZXQta2V5LXN0cmluZy0xMjM=");
+
+    @Test
+    void last4_decryptsStoredNumber() {
+        assertThat(CardLast4Backfill.last4(cardCrypto, cardCrypto.encrypt("4111111111111111")))
+                .isEqualTo("1111");
+    }
+
+    @Test
+    void last4_takesDigitsOfPlaintextSeedNumber() {
+        assertThat(CardLast4Backfill.last4(cardCrypto, "5555444433332222")).isEqualTo("2222");
+    }
+
+    @Test
+    void last4_returnsNullForUndecryptableValue() {
+        assertThat(CardLast4Backfill.last4(cardCrypto, "abc:def")).isNull();
+        assertThat(CardLast4Backfill.last4(cardCrypto, null)).isNull();
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkCardIssueResultDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardExportFormat;
+import com.example.bankcards.dto.CardIssueResultDto;
 import com.example.bankcards.dto.CreateCardDto;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.JwtAuthFilter;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.CardIssueService;
 import com.example.bankcards.service.CardService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -19,11 +24,15 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -52,6 +61,12 @@ class AdminCardControllerTest {
     @MockBean
     CardService cardService;
 
+    @MockBean
+    CardExportService cardExportService;
+
+    @MockBean
+    CardIssueService cardIssueService;
+
     @Test
     void getAll_returnsCards() throws Exception {
         var dto1 = new CardDto(1L, 10L,
@@ -100,6 +115,26 @@ class AdminCardControllerTest {
         verify(cardService).createCard(ArgumentMatchers.any(CreateCardDto.class));
     }
 
+    @Test
+    void createBulk_returnsResultPerCard() throws Exception {
+        var request = List.of(
+                new CreateCardDto(10L, "4111111111111111", LocalDate.of(2030, 12, 31), BigDecimal.ZERO),
+                new CreateCardDto(10L, "4111111111111112", LocalDate.of(2030, 12, 31), BigDecimal.ZERO));
+        var response = new BulkCardIssueResultDto(1, 1, List.of(
+                new CardIssueResultDto(0, 100L, null),
+                new CardIssueResultDto(1, null, "Некорректный номер карты")));
+        when(cardIssueService.issue(request)).thenReturn(response);
+
+        mvc.perform(post("/api/admin/cards/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].cardId").value(100))
+                .andExpect(jsonPath("$.results[1].error").value("Некорректный номер карты"));
+    }
+
     @Test
     void block_blocksCard() throws Exception {
         var dto = new CardDto(1L, 10L,
@@ -153,4 +188,39 @@ class AdminCardControllerTest {
 
         verify(cardService).requestBlock(10L, 1L);
     }
+
+    @Test
+    void hot_passesFlagAndShardCount() throws Exception {
+        when(cardService.setHot(5L, true, 8)).thenReturn(new CardDto(5L, 10L,
+                "4111 **** **** 1111",
+                CardStatus.ACTIVE,
+                new BigDecimal("100.00")));
+
+        mvc.perform(patch("/api/admin/cards/{id}/hot", 5)
+                        .param("enabled", "true")
+                        .param("shards", "8"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(5));
+
+        verify(cardService).setHot(5L, true, 8);
+    }
+
+    @Test
+    void export_streamsCsvFromService() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(1);
+            out.write("id,ownerId,number,status,balance\n".getBytes());
+            return null;
+        }).when(cardExportService).export(eq(CardExportFormat.CSV), any());
+
+        var result = mvc.perform(get("/api/admin/cards/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=cards.csv"))
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("id,ownerId,number,status,balance\n"));
+    }
 }
@@ -0,0 +1,121 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.CustomUserDetailsService;
+import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.LoginService;
+import com.example.bankcards.security.SecurityConfig;
+import com.example.bankcards.security.TokenEpochs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Вход через контроллер с настоящей цепочкой фильтров безопасности: пароль
+ * проверяется в пуле {@code loginExecutor}, ответ приходит асинхронной диспетчеризацией
+ */
+@WebMvcTest(controllers = AuthController.class)
+@Import({SecurityConfig.class, LoginService.class, AuthControllerTest.Metrics.class})
+class AuthControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ObjectMapper om;
+
+    @MockBean
+    AuthenticationManager authManager;
+    @MockBean
+    JwtService jwtService;
+    @MockBean(name = "loginExecutor")
+    TaskExecutor loginExecutor;
+    @MockBean
+    CustomUserDetailsService userDetailsService;
+    @MockBean
+    PasswordEncoder passwordEncoder;
+    @MockBean
+    TokenEpochs tokenEpochs;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void login_validCredentials_returnsTokenAfterAsyncDispatch() throws Exception {
+        runLoginsOnSeparateThread();
+        var user = new AuthenticatedUser(2L, "user", "", Role.USER, 0);
+        when(authManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        when(jwtService.generate(user)).thenReturn("token");
+
+        mvc.perform(asyncDispatch(startLogin("secret")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("token"));
+    }
+
+    @Test
+    void login_badCredentials_returns403AfterAsyncDispatch() throws Exception {
+        runLoginsOnSeparateThread();
+        when(authManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        mvc.perform(asyncDispatch(startLogin("wrong")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void login_fullLoginQueue_returns429WithRetryAfter() throws Exception {
+        doThrow(new TaskRejectedException("queue is full")).when(loginExecutor).execute(any());
+
+        mvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(new LoginRequest("user", "secret"))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    private void runLoginsOnSeparateThread() {
+        doAnswer(inv -> {
+            new Thread(inv.<Runnable>getArgument(0), "login-test").start();
+            return null;
+        }).when(loginExecutor).execute(any());
+    }
+
+    private MvcResult startLogin(String password) throws Exception {
+        return mvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(new LoginRequest("user", password))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResultDto;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSliceDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferResultDto;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.ConnectionLimitExceededException;
 import com.example.bankcards.security.JwtAuthFilter;
 import com.example.bankcards.service.CardService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,12 +25,15 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -65,6 +74,45 @@ class UserCardControllerTest {
         verify(cardService).transfer(eq(42L), ArgumentMatchers.any(TransferDto.class));
     }
 
+    @Test
+    void transfer_rejectedByConnectionLimit_returns503WithRetryAfter() throws Exception {
+        var req = new TransferDto(1L, 2L, new BigDecimal("50.00"));
+        doThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                new ConnectionLimitExceededException("Очередь за соединениями с БД заполнена")))
+                .when(cardService).transfer(eq(42L), ArgumentMatchers.any(TransferDto.class));
+
+        mvc.perform(post("/api/users/{userId}/cards/transfer", 42)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(req)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void transfer_databaseDown_isNotReportedAsOverload() {
+        var req = new TransferDto(1L, 2L, new BigDecimal("50.00"));
+        doThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                new IllegalStateException("Connection refused")))
+                .when(cardService).transfer(eq(42L), ArgumentMatchers.any(TransferDto.class));
+
+        assertThrows(ServletException.class, () -> mvc.perform(post("/api/users/{userId}/cards/transfer", 42)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(om.writeValueAsString(req))));
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_reportsReplay() throws Exception {
+        var req = new TransferDto(1L, 2L, new BigDecimal("50.00"));
+        when(cardService.transfer(eq(42L), ArgumentMatchers.any(TransferDto.class), eq("abc-123"))).thenReturn(false);
+
+        mvc.perform(post("/api/users/{userId}/cards/transfer", 42)
+                        .header("Idempotency-Key", "abc-123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+    }
+
     @Test
     void getUserCards_withStatusAndPaging_returnsPage() throws Exception {
         var page = new PageImpl<>(List.of(
@@ -113,4 +161,43 @@ class UserCardControllerTest {
 
         verify(cardService).getUserCards(eq(42L), eq(null), ArgumentMatchers.any());
     }
+
+    @Test
+    void getUserCardsSlice_returnsContentAndNextCursor() throws Exception {
+        when(cardService.getUserCardsSlice(42L, null, "YzE6OQ", 1)).thenReturn(new CardSliceDto(
+                List.of(new CardDto(12L, 42L, "**** **** **** 0002", CardStatus.ACTIVE, new BigDecimal("1.00"))),
+                "YzE6MTI",
+                true));
+
+        mvc.perform(get("/api/users/{userId}/cards/slice", 42)
+                        .param("cursor", "YzE6OQ")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(12))
+                .andExpect(jsonPath("$.nextCursor").value("YzE6MTI"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    void transferBatch_passesModeAndReturnsPerItemResults() throws Exception {
+        var req = List.of(
+                new TransferDto(1L, 2L, new BigDecimal("10.00")),
+                new TransferDto(1L, 1L, new BigDecimal("5.00")));
+        when(cardService.transferBatch(eq(42L), ArgumentMatchers.anyList(), eq(BatchTransferMode.BEST_EFFORT)))
+                .thenReturn(new BatchTransferResultDto(1, 1, List.of(
+                        new TransferResultDto(0, TransferResultDto.Status.COMPLETED, null),
+                        new TransferResultDto(1, TransferResultDto.Status.FAILED, "Карты совпадают"))));
+
+        mvc.perform(post("/api/users/{userId}/cards/transfer/batch", 42)
+                        .param("mode", "BEST_EFFORT")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(1))
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+
+        verify(cardService).transferBatch(eq(42L), ArgumentMatchers.anyList(), eq(BatchTransferMode.BEST_EFFORT));
+    }
 }
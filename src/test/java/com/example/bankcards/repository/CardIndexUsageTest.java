@@ -0,0 +1,122 @@
+package com.example.bankcards.repository;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет по EXPLAIN, что запросы выдачи карт владельца идут по индексам,
+ * созданным миграциями. Нужен Docker; без него тест пропускается
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CardIndexUsageTest {
+
+    private static final int OWNERS = 2_000;
+    private static final int CARDS_PER_OWNER = 10;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void migrateAndLoad() throws Exception {
+        var dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        var liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setChangeLogParameters(Map.of("cardCryptoKey", "bXktMzItYnl0ZS1zZWNyZXQta2V5LXN0cmluZy0xMjM="));
+        liquibase.afterPropertiesSet();
+
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("""
+                INSERT INTO users (id, username, password, role)
+                SELECT 1000 + g, 'owner' || g, 'x', 'USER' FROM generate_series(1, ?) g
+                """, OWNERS);
+        jdbc.update("""
+                INSERT INTO cards (id, card_number, owner_id, expiration_date, status, balance, last4)
+                SELECT 1000 + row_number() OVER (), 'enc' || g, u.id, DATE '2030-01-01',
+                       CASE WHEN g % 5 = 0 THEN 'BLOCKED' ELSE 'ACTIVE' END, 100, lpad(g::text, 4, '0')
+                FROM users u, generate_series(1, ?) g
+                WHERE u.id > 1000
+                """, CARDS_PER_OWNER);
+        jdbc.execute("VACUUM ANALYZE cards");
+    }
+
+    @Test
+    void ownerListing_usesListingIndexWithoutSort() {
+        String plan = explain("SELECT * FROM cards WHERE owner_id = 1042 AND id > 0 ORDER BY id LIMIT 21");
+
+        assertThat(plan).contains("idx_cards_owner_listing").doesNotContain("Seq Scan").doesNotContain("Sort");
+    }
+
+    @Test
+    void ownerListingByStatus_usesStatusIndex() {
+        String plan = explain("SELECT * FROM cards WHERE owner_id = 1042 AND status = 'ACTIVE' ORDER BY id LIMIT 21");
+
+        assertThat(plan).contains("idx_cards_owner_status_id").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void pageCountByStatus_isIndexOnly() {
+        String plan = explain("SELECT count(*) FROM cards WHERE owner_id = 1042 AND status = 'BLOCKED'");
+
+        assertThat(plan).contains("Index Only Scan using idx_cards_owner_status_id");
+    }
+
+    @Test
+    void listingProjection_readsStatusAndLast4FromIndex() {
+        String plan = explain("SELECT id, status, last4 FROM cards WHERE owner_id = 1042 ORDER BY id");
+
+        assertThat(plan).contains("Index Only Scan using idx_cards_owner_listing");
+    }
+
+    @Test
+    void balance_isNotIndexed_soTransferUpdatesStayHot() {
+        List<String> indexed = jdbc.queryForList("""
+                SELECT a.attname FROM pg_index i
+                JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)
+                WHERE i.indrelid = 'cards'::regclass
+                """, String.class);
+
+        assertThat(indexed).doesNotContain("balance", "version");
+    }
+
+    /**
+     * План запроса. На тестовом объёме bitmap-скан с сортировкой дешевле обычного
+     * индексного, поэтому он отключается: так проверяется, что индекс пригоден для
+     * упорядоченного и index-only чтения. Последовательное сканирование остаётся
+     * доступным и попадёт в план, если индекс не подходит
+     */
+    private static String explain(String sql) {
+        return jdbc.execute((ConnectionCallback<String>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute("SET enable_bitmapscan = off");
+                var plan = new StringBuilder();
+                try (ResultSet rs = st.executeQuery("EXPLAIN " + sql)) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.enums.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "bXktdmVyeS1sb25nLXN1cGVyLXNlY3JldC1rZXktMzItYnl0ZXM=";
+
+    private final JwtService jwt = new JwtService(SECRET, 60, 100);
+
+    @Test
+    void generatedToken_carriesPrincipal() {
+        String token = jwt.generate(new AuthenticatedUser(7L, "user", "hash", Role.ADMIN, 3));
+
+        AuthenticatedUser principal = jwt.toPrincipal(jwt.parse(token));
+
+        assertEquals(7L, principal.getId());
+        assertEquals("user", principal.getUsername());
+        assertEquals(Role.ADMIN, principal.getRole());
+        assertEquals(3, principal.getTokenVersion());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().iterator().next().getAuthority());
+        assertEquals("", principal.getPassword());
+    }
+
+    @Test
+    void tokenWithSubjectOnly_hasNoPrincipalClaims() {
+        String token = Jwts.builder()
+                .setSubject("user")
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertNull(jwt.toPrincipal(jwt.parse(token)));
+        assertEquals("user", jwt.extractUsername(token));
+    }
+
+    @Test
+    void repeatedToken_isServedFromVerifiedCache() {
+        String token = jwt.generate(new AuthenticatedUser(7L, "user", "hash", Role.USER, 0));
+
+        Claims first = jwt.parse(token);
+
+        assertSame(first, jwt.parse(new String(token)));
+    }
+
+    @Test
+    void withoutCache_everyTokenIsVerified() {
+        var uncached = new JwtService(SECRET, 60, 0);
+        String token = uncached.generate(new AuthenticatedUser(7L, "user", "hash", Role.USER, 0));
+
+        assertNotSame(uncached.parse(token), uncached.parse(token));
+    }
+
+    @Test
+    void cachedToken_isRejectedAfterExpiration() throws InterruptedException {
+        String token = Jwts.builder()
+                .setSubject("user")
+                .setExpiration(new Date(System.currentTimeMillis() + 1_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+        jwt.parse(token);
+
+        Thread.sleep(1_100);
+
+        assertThrows(ExpiredJwtException.class, () -> jwt.parse(token));
+    }
+
+    @Test
+    void tamperedToken_isRejected() {
+        String token = jwt.generate(new AuthenticatedUser(7L, "user", "hash", Role.USER, 0));
+        jwt.parse(token);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "AA." + parts[2];
+
+        assertThrows(JwtException.class, () -> jwt.parse(forged));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.exception.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoginServiceTest {
+
+    private final AuthenticationManager authManager = mock(AuthenticationManager.class);
+    private final JwtService jwt = mock(JwtService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void validCredentials_returnToken() {
+        var user = new AuthenticatedUser(2L, "user", "", Role.USER, 0);
+        when(authManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        when(jwt.generate(user)).thenReturn("token");
+        var loginService = new LoginService(authManager, jwt, Runnable::run, meterRegistry);
+
+        assertEquals("token", loginService.login("user", "secret").join());
+    }
+
+    @Test
+    void invalidCredentials_completeExceptionally() {
+        when(authManager.authenticate(any())).thenThrow(new BadCredentialsException("bad"));
+        var loginService = new LoginService(authManager, jwt, Runnable::run, meterRegistry);
+
+        var ex = assertThrows(CompletionException.class, () -> loginService.login("user", "wrong").join());
+        assertInstanceOf(BadCredentialsException.class, ex.getCause());
+    }
+
+    @Test
+    void fullQueue_isRejectedImmediately() {
+        TaskExecutor full = task -> {
+            throw new TaskRejectedException("queue is full");
+        };
+        var loginService = new LoginService(authManager, jwt, full, meterRegistry);
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> loginService.login("user", "secret"));
+        assertEquals(1.0, meterRegistry.get("bank.auth.login.rejected").counter().count());
+    }
+}
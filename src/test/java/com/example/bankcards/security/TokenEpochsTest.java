@@ -0,0 +1,111 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedUserRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.UserTokenVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenEpochsTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RevokedUserRepository revokedUserRepository = mock(RevokedUserRepository.class);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void storedVersions_areLoadedOnStart() {
+        when(userRepository.findRevokedTokenVersions()).thenReturn(List.of(version(1L, 2)));
+
+        var epochs = new TokenEpochs(userRepository, revokedUserRepository);
+
+        assertFalse(epochs.isCurrent(1L, 1));
+        assertTrue(epochs.isCurrent(1L, 2));
+        assertTrue(epochs.isCurrent(2L, 0));
+    }
+
+    @Test
+    void advance_revokesOlderTokensAfterCommit() {
+        var epochs = new TokenEpochs(userRepository, revokedUserRepository);
+        TransactionSynchronizationManager.initSynchronization();
+
+        epochs.advanceAfterCommit(1L, 1);
+        assertTrue(epochs.isCurrent(1L, 0));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertFalse(epochs.isCurrent(1L, 0));
+        assertTrue(epochs.isCurrent(1L, 1));
+    }
+
+    @Test
+    void revokedUser_staysRevokedAfterRefresh() {
+        var epochs = new TokenEpochs(userRepository, revokedUserRepository);
+        epochs.revoke(1L);
+        when(userRepository.findRevokedTokenVersions()).thenReturn(List.of(version(1L, 5)));
+
+        epochs.refresh();
+
+        assertFalse(epochs.isCurrent(1L, 5));
+    }
+
+    @Test
+    void revoke_storesTombstoneInTransaction() {
+        var epochs = new TokenEpochs(userRepository, revokedUserRepository);
+        TransactionSynchronizationManager.initSynchronization();
+
+        epochs.revoke(1L);
+
+        verify(revokedUserRepository).revoke(1L);
+        assertTrue(epochs.isCurrent(1L, 0));
+    }
+
+    @Test
+    void deletedUser_isRevokedOnRefreshByOtherInstance() {
+        var epochs = new TokenEpochs(userRepository, revokedUserRepository);
+        assertTrue(epochs.isCurrent(1L, 3));
+        when(revokedUserRepository.findAllUserIds()).thenReturn(List.of(1L));
+
+        epochs.refresh();
+
+        assertFalse(epochs.isCurrent(1L, 3));
+        assertTrue(epochs.isCurrent(2L, 0));
+    }
+
+    @Test
+    void deletedUser_isRevokedAfterRestart() {
+        when(revokedUserRepository.findAllUserIds()).thenReturn(List.of(1L));
+
+        var epochs = new TokenEpochs(userRepository, revokedUserRepository);
+
+        assertFalse(epochs.isCurrent(1L, 0));
+    }
+
+    private static UserTokenVersion version(Long id, int tokenVersion) {
+        return new UserTokenVersion() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return tokenVersion;
+            }
+        };
+    }
+}
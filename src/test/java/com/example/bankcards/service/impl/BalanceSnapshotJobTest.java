@@ -0,0 +1,36 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalanceSnapshotJobTest {
+
+    private final TransactionRepository repository = mock(TransactionRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rollup_repeatsWhileBatchesAreFull() {
+        when(repository.settlePending(100)).thenReturn(100L, 100L, 40L);
+
+        new BalanceSnapshotJob(repository, meterRegistry, 100, 10).rollup();
+
+        verify(repository, times(3)).settlePending(100);
+        assertThat(meterRegistry.counter("bank.ledger.settled").count()).isEqualTo(240.0);
+    }
+
+    @Test
+    void rollup_stopsAfterMaxBatches() {
+        when(repository.settlePending(100)).thenReturn(100L);
+
+        new BalanceSnapshotJob(repository, meterRegistry, 100, 2).rollup();
+
+        verify(repository, times(2)).settlePending(100);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardExportFormat;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardExportRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class CardExportServiceImplTest {
+
+    private final CardExportRepository repository = mock(CardExportRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final CardExportServiceImpl service =
+            new CardExportServiceImpl(repository, new ObjectMapper(), transactionManager, 250);
+
+    @SuppressWarnings("unchecked")
+    private void givenCards(CardDto... cards) {
+        doAnswer(inv -> {
+            Consumer<CardDto> action = inv.getArgument(1);
+            for (CardDto card : cards) {
+                action.accept(card);
+            }
+            return null;
+        }).when(repository).forEachCard(eq(250), any(Consumer.class));
+    }
+
+    @Test
+    void export_ndjson_writesOneObjectPerLineInReadOnlyTransaction() throws Exception {
+        givenCards(
+                new CardDto(1L, 10L, "**** **** **** 1111", CardStatus.ACTIVE, new BigDecimal("100.00")),
+                new CardDto(2L, 11L, "**** **** **** 2222", CardStatus.BLOCKED, new BigDecimal("0.50")));
+        var out = new ByteArrayOutputStream();
+
+        service.export(CardExportFormat.NDJSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                {"id":1,"ownerId":10,"number":"**** **** **** 1111","status":"ACTIVE","balance":100.00}
+                {"id":2,"ownerId":11,"number":"**** **** **** 2222","status":"BLOCKED","balance":0.50}
+                """);
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    void export_csv_writesHeaderAndRows() throws Exception {
+        givenCards(new CardDto(1L, 10L, "**** **** **** 1111", CardStatus.ACTIVE, new BigDecimal("100.00")));
+        var out = new ByteArrayOutputStream();
+
+        service.export(CardExportFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,ownerId,number,status,balance
+                1,10,**** **** **** 1111,ACTIVE,100.00
+                """);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.BulkCardIssueResultDto;
+import com.example.bankcards.dto.CardIssueResultDto;
+import com.example.bankcards.dto.CreateCardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidCardDataException;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardCrypto;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CardIssueServiceImplTest {
+
+    private static final String VALID_NUMBER = "4111111111111111";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CardCrypto cardCrypto = new CardCrypto("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+
+    private final AtomicLong nextId = new AtomicLong(100);
+
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(userRepository.lockExistingIds(any())).thenReturn(Set.of(10L));
+        when(entityManager.getReference(eq(User.class), anyLong())).thenReturn(new User());
+        doAnswer(inv -> {
+            inv.<Card>getArgument(0).setId(nextId.getAndIncrement());
+            return null;
+        }).when(entityManager).persist(any(Card.class));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    private CardIssueServiceImpl newService(int chunkSize) {
+        return new CardIssueServiceImpl(userRepository, cardCrypto, entityManager, transactionManager, 5, chunkSize);
+    }
+
+    private static CreateCardDto card(Long ownerId, String number) {
+        return new CreateCardDto(ownerId, number, LocalDate.of(2030, 12, 31), new BigDecimal("50.00"));
+    }
+
+    @Test
+    void issue_persistsValidCardsAndRejectsInvalid() {
+        BulkCardIssueResultDto result = newService(100).issue(List.of(
+                card(10L, VALID_NUMBER),
+                card(10L, "4111111111111112"),
+                card(11L, VALID_NUMBER)));
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(2);
+        assertThat(result.results()).containsExactly(
+                new CardIssueResultDto(0, 100L, null),
+                new CardIssueResultDto(1, null, "Некорректный номер карты"),
+                new CardIssueResultDto(2, null, "Пользователь не найден"));
+
+        var saved = ArgumentCaptor.forClass(Card.class);
+        verify(entityManager).persist(saved.capture());
+        assertThat(cardCrypto.decrypt(saved.getValue().getCardNumber())).isEqualTo(VALID_NUMBER);
+        assertThat(saved.getValue().getLast4()).isEqualTo("1111");
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void issue_locksOwnersInsideInsertTransaction() {
+        var order = inOrder(transactionManager, userRepository, entityManager);
+
+        newService(100).issue(List.of(card(10L, VALID_NUMBER)));
+
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(userRepository).lockExistingIds(Set.of(10L));
+        order.verify(entityManager).persist(any(Card.class));
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void issue_looksUpOwnersOnce() {
+        newService(100).issue(List.of(card(10L, VALID_NUMBER), card(10L, VALID_NUMBER), card(12L, VALID_NUMBER)));
+
+        verify(userRepository).lockExistingIds(Set.of(10L, 12L));
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void issue_flushesAndClearsEveryChunk() {
+        var cards = IntStream.range(0, 5).mapToObj(i -> card(10L, VALID_NUMBER)).toList();
+
+        var result = newService(2).issue(cards);
+
+        assertThat(result.created()).isEqualTo(5);
+        verify(entityManager, times(5)).persist(any(Card.class));
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void issue_rejectsEmptyAndOversizedBatch() {
+        var service = newService(100);
+
+        assertThatThrownBy(() -> service.issue(Collections.emptyList()))
+                .isInstanceOf(InvalidCardDataException.class);
+        assertThatThrownBy(() -> service.issue(Collections.nCopies(6, card(10L, VALID_NUMBER))))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageContaining("5");
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void issue_rejectsExpiredOrMissingExpiryWithItsIndex() {
+        var service = newService(100);
+        var expired = new CreateCardDto(10L, VALID_NUMBER, LocalDate.now().minusDays(1), BigDecimal.ZERO);
+        var noExpiry = new CreateCardDto(10L, VALID_NUMBER, null, BigDecimal.ZERO);
+
+        assertThatThrownBy(() -> service.issue(List.of(card(10L, VALID_NUMBER), expired)))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageStartingWith("Карта 1:");
+        assertThatThrownBy(() -> service.issue(List.of(noExpiry)))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageStartingWith("Карта 0:");
+        verifyNoInteractions(userRepository, entityManager, transactionManager);
+    }
+
+    @Test
+    void issue_rejectsNegativeOrMissingBalanceWithItsIndex() {
+        var service = newService(100);
+        var expiry = LocalDate.of(2030, 12, 31);
+        var negative = new CreateCardDto(10L, VALID_NUMBER, expiry, new BigDecimal("-0.01"));
+        var noBalance = new CreateCardDto(10L, VALID_NUMBER, expiry, null);
+
+        assertThatThrownBy(() -> service.issue(List.of(card(10L, VALID_NUMBER), card(10L, VALID_NUMBER), negative)))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageStartingWith("Карта 2:");
+        assertThatThrownBy(() -> service.issue(List.of(noBalance)))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageStartingWith("Карта 0:");
+        verifyNoInteractions(userRepository, entityManager, transactionManager);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferMode;
+import com.example.bankcards.util.CardCrypto;
+import com.example.bankcards.util.CardLockManager;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Сериализация переводов полосатыми блокировками {@link CardLockManager} внутри JVM.
+ * Репозиторий и менеджер транзакций здесь заглушки, поэтому блокировки строк
+ * и границы транзакций базы не проверяются - это делает {@link CardTransferPostgresTest}
+ */
+class CardServiceImplLockManagerTest {
+
+    private static final long OWNER_ID = 1L;
+    private static final int THREADS = 64;
+
+    private final Map<Long, Card> cards = new ConcurrentHashMap<>();
+    private CardServiceImpl cardService;
+
+    @BeforeEach
+    void setUp() {
+        CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+        when(cardRepository.findByIdAndOwnerIdForUpdate(anyLong(), eq(OWNER_ID)))
+                .thenAnswer(inv -> Optional.ofNullable(cards.get(inv.<Long>getArgument(0))));
+        when(cardRepository.save(any(Card.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        cardService = new CardServiceImpl(cardRepository, mock(UserRepository.class), mock(TransactionRepository.class),
+                mock(CardBalanceShardRepository.class), mock(HotCardRegistry.class),
+                new CardCrypto("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY="), new CardLockManager(1024),
+                new OptimisticRetryExecutor(new SimpleMeterRegistry(), 5, 0, 0), mock(LedgerWriter.class),
+                mock(IdempotencyGuard.class),
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()), new SimpleMeterRegistry(),
+                TransferMode.PESSIMISTIC, 5000, 64);
+    }
+
+    @Test
+    void transfer_concurrentRandomTransfers_preserveTotalBalance() throws Exception {
+        for (long id = 1; id <= 4; id++) {
+            cards.put(id, card(id, "1000.00"));
+        }
+        BigDecimal totalBefore = total();
+
+        runConcurrently(THREADS * 4, 200, () -> {
+            var random = ThreadLocalRandom.current();
+            long from = random.nextLong(1, 5);
+            long to = from % 4 + 1;
+            var amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+            try {
+                cardService.transfer(OWNER_ID, new TransferDto(from, to, amount));
+            } catch (InsufficientFundsException ignored) {
+            }
+        });
+
+        assertEquals(0, totalBefore.compareTo(total()));
+        cards.values().forEach(c -> assertTrue(c.getBalance().signum() >= 0));
+    }
+
+    @Test
+    void transfer_concurrentDebitsFromOneCard_neverOverdraw() throws Exception {
+        cards.put(1L, card(1L, "100.00"));
+        cards.put(2L, card(2L, "0.00"));
+        var succeeded = new AtomicInteger();
+        var rejected = new AtomicInteger();
+
+        runConcurrently(THREADS * 2, 1, () -> {
+            try {
+                cardService.transfer(OWNER_ID, new TransferDto(1L, 2L, new BigDecimal("1.00")));
+                succeeded.incrementAndGet();
+            } catch (InsufficientFundsException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, succeeded.get());
+        assertEquals(THREADS * 2 - 100, rejected.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cards.get(1L).getBalance()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(cards.get(2L).getBalance()));
+    }
+
+    private void runConcurrently(int threads, int iterations, Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    task.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    private BigDecimal total() {
+        return cards.values().stream().map(Card::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static Card card(long id, String balance) {
+        User owner = new User();
+        owner.setId(OWNER_ID);
+        owner.setUsername("alice");
+        owner.setPassword("enc");
+        owner.setRole(Role.USER);
+
+        Card card = new Card();
+        card.setId(id);
+        card.setOwner(owner);
+        card.setCardNumber("enc");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal(balance));
+        return card;
+    }
+}
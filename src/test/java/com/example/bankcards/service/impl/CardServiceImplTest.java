@@ -1,30 +1,57 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.dto.BatchTransferMode;
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardSliceDto;
 import com.example.bankcards.dto.CreateCardDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferResultDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.Role;
 import com.example.bankcards.exception.*;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardListItem;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.repository.PendingDelta;
+import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferMode;
 import com.example.bankcards.util.CardCrypto;
+import com.example.bankcards.util.CardCursor;
+import com.example.bankcards.util.CardLockManager;
+import com.example.bankcards.util.OptimisticRetryExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class CardServiceImplTest {
@@ -35,17 +62,46 @@ class CardServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private LedgerWriter ledgerWriter;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private CardBalanceShardRepository cardBalanceShardRepository;
+
+    @Mock
+    private HotCardRegistry hotCardRegistry;
+
     private CardCrypto cardCrypto;
 
     private CardServiceImpl cardService;
 
     private AutoCloseable mocks;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @BeforeEach
     void setUp() {
         mocks = MockitoAnnotations.openMocks(this);
         cardCrypto = new CardCrypto("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
-        cardService = new CardServiceImpl(cardRepository, userRepository, cardCrypto);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        cardService = newService(TransferMode.PESSIMISTIC);
+    }
+
+    private CardServiceImpl newService(TransferMode mode) {
+        return new CardServiceImpl(cardRepository, userRepository, transactionRepository,
+                cardBalanceShardRepository, hotCardRegistry, cardCrypto, new CardLockManager(16),
+                new OptimisticRetryExecutor(meterRegistry, 3, 0, 0), ledgerWriter,
+                new IdempotencyGuard(idempotencyKeyRepository, meterRegistry, 24, 100),
+                transactionManager, meterRegistry, mode, 100, 64);
     }
 
     @AfterEach
@@ -81,7 +137,12 @@ class CardServiceImplTest {
         assertEquals(1L, created.ownerId());
         assertEquals(CardStatus.ACTIVE, created.status());
         assertEquals(new BigDecimal("100.00"), created.balance());
+        assertEquals("**** **** **** 0366", created.number());
 
+        ArgumentCaptor<Card> captor = ArgumentCaptor.forClass(Card.class);
+        verify(cardRepository).save(captor.capture());
+        assertEquals("0366", captor.getValue().getLast4());
+        assertNotEquals("4532015112830366", captor.getValue().getCardNumber());
         verify(userRepository).findById(1L);
         verify(cardRepository).save(any(Card.class));
         verifyNoMoreInteractions(cardRepository, userRepository);
@@ -100,7 +161,8 @@ class CardServiceImplTest {
         Card existing = new Card();
         existing.setId(11L);
         existing.setOwner(owner);
-        existing.setCardNumber(encNumber);
+        existing.setCardNumber("not-decryptable");
+        existing.setLast4("1111");
         existing.setExpirationDate(LocalDate.now().plusYears(2));
         existing.setStatus(CardStatus.ACTIVE);
         existing.setBalance(new BigDecimal("10.00"));
@@ -111,6 +173,7 @@ class CardServiceImplTest {
         CardDto result = cardService.requestBlock(1L, 11L);
 
         assertEquals(CardStatus.BLOCKED, result.status());
+        assertEquals("**** **** **** 1111", result.number());
 
         ArgumentCaptor<Card> captor = ArgumentCaptor.forClass(Card.class);
         verify(cardRepository).findById(11L);
@@ -178,8 +241,8 @@ class CardServiceImplTest {
         to.setStatus(CardStatus.ACTIVE);
         to.setBalance(new BigDecimal("50.00"));
 
-        when(cardRepository.findByIdAndOwnerId(1L, 101L)).thenReturn(Optional.of(from));
-        when(cardRepository.findByIdAndOwnerId(1L, 102L)).thenReturn(Optional.of(to));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(to));
 
         cardService.transfer(1L, new TransferDto(101L,
                 102L,
@@ -188,12 +251,14 @@ class CardServiceImplTest {
         assertEquals(new BigDecimal("40.00"), from.getBalance());
         assertEquals(new BigDecimal("110.00"), to.getBalance());
 
-        verify(cardRepository).findByIdAndOwnerId(1L, 101L);
-        verify(cardRepository).findByIdAndOwnerId(1L, 102L);
+        verify(cardRepository).findByIdAndOwnerIdForUpdate(101L, 1L);
+        verify(cardRepository).findByIdAndOwnerIdForUpdate(102L, 1L);
         verify(cardRepository).save(from);
         verify(cardRepository).save(to);
+        verify(ledgerWriter).recordTransfer(101L, 102L, new BigDecimal("60.00"));
         verifyNoMoreInteractions(cardRepository);
         verifyNoInteractions(userRepository);
+        assertEquals(1.0, transferOutcome("completed"));
     }
 
     @Test
@@ -226,8 +291,8 @@ class CardServiceImplTest {
         to.setStatus(CardStatus.ACTIVE);
         to.setBalance(new BigDecimal("50.00"));
 
-        when(cardRepository.findByIdAndOwnerId(1L, 101L)).thenReturn(Optional.of(from));
-        when(cardRepository.findByIdAndOwnerId(1L, 102L)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.transfer(1L,
                 new TransferDto(101L,
@@ -236,8 +301,8 @@ class CardServiceImplTest {
                 .isInstanceOf(CardNotFoundException.class) // 🔧 Изменилось исключение!
                 .hasMessageContaining("Карта не найдена");
 
-        verify(cardRepository).findByIdAndOwnerId(1L, 101L);
-        verify(cardRepository).findByIdAndOwnerId(1L, 102L);
+        verify(cardRepository).findByIdAndOwnerIdForUpdate(101L, 1L);
+        verify(cardRepository).findByIdAndOwnerIdForUpdate(102L, 1L);
         verifyNoMoreInteractions(cardRepository);
         verifyNoInteractions(userRepository);
     }
@@ -266,8 +331,8 @@ class CardServiceImplTest {
         to.setStatus(CardStatus.ACTIVE);
         to.setBalance(new BigDecimal("50.00"));
 
-        when(cardRepository.findByIdAndOwnerId(1L, 101L)).thenReturn(Optional.of(from));
-        when(cardRepository.findByIdAndOwnerId(1L, 102L)).thenReturn(Optional.of(to));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(to));
 
         assertThatThrownBy(() -> cardService.transfer(1L,
                 new TransferDto(101L,
@@ -276,10 +341,15 @@ class CardServiceImplTest {
                 .isInstanceOf(InsufficientFundsException.class)
                 .hasMessageContaining("Недостаточно средств");
 
-        verify(cardRepository).findByIdAndOwnerId(1L, 101L);
-        verify(cardRepository).findByIdAndOwnerId(1L, 102L);
+        verify(cardRepository).findByIdAndOwnerIdForUpdate(101L, 1L);
+        verify(cardRepository).findByIdAndOwnerIdForUpdate(102L, 1L);
         verifyNoMoreInteractions(cardRepository);
         verifyNoInteractions(userRepository);
+        assertEquals(1.0, transferOutcome("InsufficientFundsException"));
+    }
+
+    private double transferOutcome(String outcome) {
+        return meterRegistry.get("bank.transfer.outcome").tag("outcome", outcome).counter().count();
     }
 
     @Test
@@ -292,6 +362,7 @@ class CardServiceImplTest {
                 .hasMessageContaining("Карты совпадают");
 
         verifyNoInteractions(cardRepository, userRepository);
+        assertEquals(1.0, transferOutcome("InvalidTransferException"));
     }
 
     @Test
@@ -316,6 +387,34 @@ class CardServiceImplTest {
         verifyNoInteractions(userRepository);
     }
 
+    @Test
+    void deleteCard_withPendingLedgerOperations_isRejected() {
+        when(cardRepository.existsById(10L)).thenReturn(true);
+        when(transactionRepository.existsByCardIdAndSettledFalse(10L)).thenReturn(true);
+
+        assertThatThrownBy(() -> cardService.deleteCard(10L))
+                .isInstanceOf(CardHasPendingOperationsException.class);
+
+        verify(cardRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void createCard_rejectsExpiredOrNegativeBalanceBeforeLookups() {
+        var expired = new CreateCardDto(1L, "4532015112830366", LocalDate.now().minusDays(1), BigDecimal.ZERO);
+        var negative = new CreateCardDto(1L, "4532015112830366", LocalDate.now().plusYears(2), new BigDecimal("-1.00"));
+        var noBalance = new CreateCardDto(1L, "4532015112830366", LocalDate.now().plusYears(2), null);
+
+        assertThatThrownBy(() -> cardService.createCard(expired))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageContaining("срок действия");
+        assertThatThrownBy(() -> cardService.createCard(negative))
+                .isInstanceOf(InvalidCardDataException.class)
+                .hasMessageContaining("баланс");
+        assertThatThrownBy(() -> cardService.createCard(noBalance))
+                .isInstanceOf(InvalidCardDataException.class);
+        verifyNoInteractions(userRepository, cardRepository);
+    }
+
     @Test
     void createCard_userNotFound() {
         when(userRepository.findById(99L)).thenReturn(Optional.empty());
@@ -334,4 +433,540 @@ class CardServiceImplTest {
         verify(userRepository).findById(99L);
         verifyNoInteractions(cardRepository);
     }
+
+    @Test
+    void transfer_optimistic_retriesOnVersionConflict() {
+        cardService = newService(TransferMode.OPTIMISTIC);
+        User owner = new User();
+        owner.setId(1L);
+        owner.setUsername("alice");
+        owner.setPassword("enc");
+        owner.setRole(Role.USER);
+
+        Card from = new Card();
+        from.setId(101L);
+        from.setOwner(owner);
+        from.setStatus(CardStatus.ACTIVE);
+        from.setBalance(new BigDecimal("100.00"));
+
+        Card to = new Card();
+        to.setId(102L);
+        to.setOwner(owner);
+        to.setStatus(CardStatus.ACTIVE);
+        to.setBalance(new BigDecimal("50.00"));
+
+        when(cardRepository.findByIdAndOwnerId(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(to));
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 101L))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("10.00")));
+
+        verify(cardRepository, times(2)).findByIdAndOwnerId(101L, 1L);
+        verify(cardRepository, times(2)).findByIdAndOwnerId(102L, 1L);
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(meterRegistry.counter("bank.transfer.optimistic.conflicts").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("bank.transfer.optimistic.retries").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void transfer_optimistic_conflictAfterAllAttempts() {
+        cardService = newService(TransferMode.OPTIMISTIC);
+        User owner = new User();
+        owner.setId(1L);
+        owner.setUsername("alice");
+        owner.setPassword("enc");
+        owner.setRole(Role.USER);
+
+        Card from = new Card();
+        from.setId(101L);
+        from.setOwner(owner);
+        from.setStatus(CardStatus.ACTIVE);
+        from.setBalance(new BigDecimal("100.00"));
+
+        Card to = new Card();
+        to.setId(102L);
+        to.setOwner(owner);
+        to.setStatus(CardStatus.ACTIVE);
+        to.setBalance(new BigDecimal("50.00"));
+
+        when(cardRepository.findByIdAndOwnerId(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(to));
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 101L))
+                .when(transactionManager).commit(any());
+
+        assertThatThrownBy(() -> cardService.transfer(1L,
+                new TransferDto(101L, 102L, new BigDecimal("1.00"))))
+                .isInstanceOf(TransferConflictException.class);
+
+        verify(transactionManager, times(3)).commit(any());
+        assertThat(meterRegistry.counter("bank.transfer.optimistic.conflicts").count()).isEqualTo(3.0);
+        assertThat(meterRegistry.counter("bank.transfer.optimistic.exhausted").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void transfer_atomic_singleStatement() {
+        cardService = newService(TransferMode.ATOMIC);
+        when(cardRepository.moveBalance(1L, 101L, 102L, new BigDecimal("10.00"))).thenReturn("OK");
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("10.00")));
+
+        verify(cardRepository).moveBalance(1L, 101L, 102L, new BigDecimal("10.00"));
+        verify(ledgerWriter).recordTransfer(101L, 102L, new BigDecimal("10.00"));
+        verifyNoMoreInteractions(cardRepository);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void transfer_atomic_mapsFailedCheckToException() {
+        cardService = newService(TransferMode.ATOMIC);
+        when(cardRepository.moveBalance(1L, 101L, 102L, new BigDecimal("10.00")))
+                .thenReturn("INSUFFICIENT_FUNDS", "CARD_INACTIVE", "CARD_NOT_FOUND");
+        var dto = new TransferDto(101L, 102L, new BigDecimal("10.00"));
+
+        assertThatThrownBy(() -> cardService.transfer(1L, dto))
+                .isInstanceOf(InsufficientFundsException.class);
+        assertThatThrownBy(() -> cardService.transfer(1L, dto))
+                .isInstanceOf(InvalidTransferException.class);
+        assertThatThrownBy(() -> cardService.transfer(1L, dto))
+                .isInstanceOf(CardNotFoundException.class);
+
+        verify(transactionManager, times(3)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(ledgerWriter);
+    }
+
+    @Test
+    void transferBatch_bestEffort_appliesValidTransfers() {
+        User owner = new User();
+        owner.setId(1L);
+
+        Card from = new Card();
+        from.setId(101L);
+        from.setOwner(owner);
+        from.setStatus(CardStatus.ACTIVE);
+        from.setBalance(new BigDecimal("100.00"));
+
+        Card to = new Card();
+        to.setId(102L);
+        to.setOwner(owner);
+        to.setStatus(CardStatus.ACTIVE);
+        to.setBalance(new BigDecimal("0.00"));
+
+        when(cardRepository.findAllByIdInAndOwnerIdForUpdate(Set.of(101L, 102L), 1L)).thenReturn(List.of(from, to));
+
+        var result = cardService.transferBatch(1L, List.of(
+                new TransferDto(101L, 102L, new BigDecimal("60.00")),
+                new TransferDto(101L, 102L, new BigDecimal("60.00")),
+                new TransferDto(101L, 101L, new BigDecimal("1.00")),
+                new TransferDto(102L, 101L, new BigDecimal("10.00"))), BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(2, result.completed());
+        assertEquals(2, result.failed());
+        assertThat(result.results()).extracting(TransferResultDto::status).containsExactly(
+                TransferResultDto.Status.COMPLETED,
+                TransferResultDto.Status.FAILED,
+                TransferResultDto.Status.FAILED,
+                TransferResultDto.Status.COMPLETED);
+        assertEquals("Недостаточно средств", result.results().get(1).error());
+        assertEquals(new BigDecimal("50.00"), from.getBalance());
+        assertEquals(new BigDecimal("50.00"), to.getBalance());
+
+        verify(cardRepository).findAllByIdInAndOwnerIdForUpdate(Set.of(101L, 102L), 1L);
+        verify(cardRepository).saveAll(List.of(from, to));
+        verify(transactionManager).commit(any());
+        verifyNoMoreInteractions(cardRepository);
+    }
+
+    @Test
+    void transferBatch_allOrNothing_rollsBackOnFirstFailure() {
+        User owner = new User();
+        owner.setId(1L);
+
+        Card from = new Card();
+        from.setId(101L);
+        from.setOwner(owner);
+        from.setStatus(CardStatus.ACTIVE);
+        from.setBalance(new BigDecimal("100.00"));
+
+        Card to = new Card();
+        to.setId(102L);
+        to.setOwner(owner);
+        to.setStatus(CardStatus.BLOCKED);
+        to.setBalance(new BigDecimal("0.00"));
+
+        when(cardRepository.findAllByIdInAndOwnerIdForUpdate(Set.of(101L, 102L, 103L), 1L)).thenReturn(List.of(from, to));
+
+        var result = cardService.transferBatch(1L, List.of(
+                new TransferDto(101L, 103L, new BigDecimal("1.00")),
+                new TransferDto(101L, 102L, new BigDecimal("1.00"))), BatchTransferMode.ALL_OR_NOTHING);
+
+        assertEquals(0, result.completed());
+        assertEquals(1, result.failed());
+        assertThat(result.results()).extracting(TransferResultDto::status).containsExactly(
+                TransferResultDto.Status.FAILED,
+                TransferResultDto.Status.ROLLED_BACK);
+        assertEquals("Карта не найдена", result.results().get(0).error());
+        verify(cardRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transferBatch_allOrNothing_invalidItemSkipsDatabase() {
+        var result = cardService.transferBatch(1L, List.of(
+                new TransferDto(101L, 102L, new BigDecimal("1.00")),
+                new TransferDto(101L, 102L, BigDecimal.ZERO)), BatchTransferMode.ALL_OR_NOTHING);
+
+        assertThat(result.results()).extracting(TransferResultDto::status).containsExactly(
+                TransferResultDto.Status.ROLLED_BACK,
+                TransferResultDto.Status.FAILED);
+        verifyNoInteractions(cardRepository, transactionManager);
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_replayIsServedFromCacheWithoutRepositories() {
+        Card from = activeCard(101L, "100.00");
+        Card to = activeCard(102L, "0.00");
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(to));
+        when(idempotencyKeyRepository.claim(eq(1L), eq("key-1"), anyString(), any())).thenReturn(true);
+        var dto = new TransferDto(101L, 102L, new BigDecimal("10.00"));
+
+        assertThat(cardService.transfer(1L, dto, "key-1")).isTrue();
+        clearInvocations(cardRepository, idempotencyKeyRepository);
+
+        assertThat(cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("10")), "key-1")).isFalse();
+
+        assertEquals(new BigDecimal("90.00"), from.getBalance());
+        verifyNoInteractions(cardRepository, idempotencyKeyRepository);
+        verify(ledgerWriter, times(1)).recordTransfer(101L, 102L, new BigDecimal("10.00"));
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_alreadyStoredKeySkipsCards() {
+        var dto = new TransferDto(101L, 102L, new BigDecimal("10.00"));
+        when(idempotencyKeyRepository.claim(eq(1L), eq("key-1"), anyString(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.findRequestHash(1L, "key-1")).thenReturn(Optional.of(IdempotencyGuard.hash(dto)));
+
+        assertThat(cardService.transfer(1L, dto, "key-1")).isFalse();
+
+        verifyNoInteractions(cardRepository, ledgerWriter);
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_reusedForOtherTransfer_throws() {
+        when(idempotencyKeyRepository.claim(eq(1L), eq("key-1"), anyString(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.findRequestHash(1L, "key-1"))
+                .thenReturn(Optional.of(IdempotencyGuard.hash(new TransferDto(101L, 102L, BigDecimal.ONE))));
+
+        assertThatThrownBy(() -> cardService.transfer(1L, new TransferDto(101L, 102L, BigDecimal.TEN), "key-1"))
+                .isInstanceOf(IdempotencyKeyReuseException.class);
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getUserCardsSlice_returnsCursorOfLastCardWhenMoreRemain() {
+        when(cardRepository.findListItemsByOwnerIdAfter(eq(1L), eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(
+                        listItem(5L, "1111", "10.00", 0),
+                        listItem(9L, "2222", "20.00", 0)), PageRequest.of(0, 2), true));
+
+        CardSliceDto slice = cardService.getUserCardsSlice(1L, null, null, 2);
+
+        assertThat(slice.content()).extracting(CardDto::id).containsExactly(5L, 9L);
+        assertEquals("**** **** **** 2222", slice.content().get(1).number());
+        assertThat(slice.hasNext()).isTrue();
+        assertEquals(9L, CardCursor.decode(slice.nextCursor()));
+        verify(cardRepository, never()).count();
+    }
+
+    @Test
+    void getUserCardsSlice_continuesAfterCursorAndFiltersByStatus() {
+        when(cardRepository.findListItemsByOwnerIdAndStatusAfter(
+                eq(1L), eq(CardStatus.ACTIVE), eq(9L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(listItem(12L, "0012", "5.00", 0)), PageRequest.of(0, 2), false));
+
+        CardSliceDto slice = cardService.getUserCardsSlice(1L, CardStatus.ACTIVE, CardCursor.encode(9L), 2);
+
+        assertThat(slice.content()).extracting(CardDto::id).containsExactly(12L);
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(slice.nextCursor()).isNull();
+    }
+
+    @Test
+    void getUserCards_buildsDtosFromProjectionWithLiveBalance() {
+        cardService = newService(TransferMode.LEDGER);
+        var pageable = PageRequest.of(0, 20);
+        when(cardRepository.findListItemsByOwnerIdAndStatus(1L, CardStatus.ACTIVE, pageable))
+                .thenReturn(new PageImpl<>(List.of(
+                        listItem(5L, "1111", "10.00", 0),
+                        listItem(9L, "2222", "20.00", 4)), pageable, 42));
+        when(transactionRepository.sumPendingByCardIds(List.of(5L, 9L))).thenReturn(List.of(pending(5L, "-3.00")));
+        when(cardBalanceShardRepository.sumByCardIds(List.of(9L))).thenReturn(Map.of(9L, new BigDecimal("7.00")));
+
+        var page = cardService.getUserCards(1L, CardStatus.ACTIVE, pageable);
+
+        assertEquals(42, page.getTotalElements());
+        assertThat(page.getContent()).extracting(CardDto::balance)
+                .containsExactly(new BigDecimal("7.00"), new BigDecimal("27.00"));
+        assertEquals("**** **** **** 1111", page.getContent().get(0).number());
+        verify(cardRepository).findListItemsByOwnerIdAndStatus(1L, CardStatus.ACTIVE, pageable);
+        verifyNoMoreInteractions(cardRepository);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUserCards_outsideLedgerMode_checksSettledJournalOnce() {
+        var pageable = PageRequest.of(0, 20);
+        when(cardRepository.findListItemsByOwnerIdAndStatus(1L, CardStatus.ACTIVE, pageable))
+                .thenReturn(new PageImpl<>(List.of(listItem(5L, "1111", "10.00", 0)), pageable, 1));
+
+        cardService.getUserCards(1L, CardStatus.ACTIVE, pageable);
+        var page = cardService.getUserCards(1L, CardStatus.ACTIVE, pageable);
+
+        assertThat(page.getContent()).extracting(CardDto::balance).containsExactly(new BigDecimal("10.00"));
+        verify(transactionRepository).existsBySettledFalse();
+        verifyNoMoreInteractions(transactionRepository);
+    }
+
+    @Test
+    void transfer_afterSwitchFromLedger_countsPendingDebitsUntilSettled() {
+        Card from = activeCard(101L, "10.00");
+        when(transactionRepository.existsBySettledFalse()).thenReturn(true, true, false);
+        when(transactionRepository.sumPendingByCardIds(List.of(101L))).thenReturn(List.of(pending(101L, "-8.00")));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(activeCard(102L, "0.00")));
+
+        assertThatThrownBy(() -> cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00"))))
+                .isInstanceOf(InsufficientFundsException.class);
+        assertThatThrownBy(() -> cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00"))))
+                .isInstanceOf(InsufficientFundsException.class);
+        from.setBalance(new BigDecimal("2.00"));
+        assertThatThrownBy(() -> cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00"))))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("2.00")));
+        assertEquals(new BigDecimal("0.00"), from.getBalance());
+        verify(transactionRepository, times(3)).existsBySettledFalse();
+    }
+
+    @Test
+    void transfer_atomicWithPendingJournal_locksRowsInsteadOfSingleStatement() {
+        cardService = newService(TransferMode.ATOMIC);
+        when(transactionRepository.existsBySettledFalse()).thenReturn(true);
+        when(transactionRepository.sumPendingByCardIds(List.of(101L))).thenReturn(List.of(pending(101L, "-8.00")));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(activeCard(101L, "10.00")));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(activeCard(102L, "0.00")));
+
+        assertThatThrownBy(() -> cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00"))))
+                .isInstanceOf(InsufficientFundsException.class);
+        verify(cardRepository, never()).moveBalance(any(), any(), any(), any());
+    }
+
+    @Test
+    void getUserCardsSlice_rejectsBrokenCursorAndSize() {
+        assertThatThrownBy(() -> cardService.getUserCardsSlice(1L, null, "not a cursor", 20))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> cardService.getUserCardsSlice(1L, null, null, 0))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> cardService.getUserCardsSlice(1L, null, null, 101))
+                .isInstanceOf(InvalidPageRequestException.class);
+        verifyNoInteractions(cardRepository);
+    }
+
+    private static Card activeCard(long id, String balance) {
+        User owner = new User();
+        owner.setId(1L);
+        owner.setUsername("alice");
+        owner.setPassword("enc");
+        owner.setRole(Role.USER);
+
+        Card card = new Card();
+        card.setId(id);
+        card.setOwner(owner);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal(balance));
+        return card;
+    }
+
+    @Test
+    void transfer_ledger_appendsPendingEntriesWithoutTouchingRecipientRow() {
+        cardService = newService(TransferMode.LEDGER);
+        Card from = activeCard(101L, "10.00");
+        Card to = activeCard(102L, "0.00");
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(to));
+        when(transactionRepository.sumPendingByCardIds(List.of(101L))).thenReturn(List.of(pending(101L, "5.00")));
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("15.00")));
+
+        verify(ledgerWriter).appendPending(101L, 102L, new BigDecimal("15.00"));
+        verify(cardRepository, never()).findByIdAndOwnerIdForUpdate(eq(102L), any());
+        verify(cardRepository, never()).save(any());
+        assertEquals(new BigDecimal("10.00"), from.getBalance());
+    }
+
+    @Test
+    void transfer_ledger_pendingDebitsCountAgainstBalance() {
+        cardService = newService(TransferMode.LEDGER);
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(activeCard(101L, "10.00")));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(activeCard(102L, "0.00")));
+        when(transactionRepository.sumPendingByCardIds(List.of(101L))).thenReturn(List.of(pending(101L, "-6.00")));
+
+        assertThatThrownBy(() -> cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00"))))
+                .isInstanceOf(InsufficientFundsException.class);
+        verify(ledgerWriter, never()).appendPending(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_ledger_pendingDebitsCountAgainstBalanceLikeSingleTransfer() {
+        cardService = newService(TransferMode.LEDGER);
+        Card from = activeCard(101L, "10.00");
+        Card to = activeCard(102L, "0.00");
+        when(cardRepository.findAllByIdInAndOwnerIdForUpdate(Set.of(101L, 102L), 1L)).thenReturn(List.of(from, to));
+        when(transactionRepository.sumPendingByCardIds(any())).thenReturn(List.of(pending(101L, "-6.00")));
+
+        var result = cardService.transferBatch(1L, List.of(new TransferDto(101L, 102L, new BigDecimal("5.00"))),
+                BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(0, result.completed());
+        assertEquals("Недостаточно средств", result.results().get(0).error());
+    }
+
+    @Test
+    void transfer_pessimisticWithSettledJournal_doesNotReadPendingDeltas() {
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(activeCard(101L, "10.00")));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(activeCard(102L, "0.00")));
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00")));
+
+        verify(transactionRepository, never()).sumPendingByCardIds(any());
+    }
+
+    @Test
+    void blockCard_returnsSnapshotPlusPendingDelta() {
+        cardService = newService(TransferMode.LEDGER);
+        Card card = activeCard(101L, "10.00");
+        card.setCardNumber(cardCrypto.encrypt("4111111111111111"));
+        when(cardRepository.findById(101L)).thenReturn(Optional.of(card));
+        when(cardRepository.save(card)).thenReturn(card);
+        when(transactionRepository.sumPendingByCardIds(List.of(101L))).thenReturn(List.of(pending(101L, "2.50")));
+
+        var dto = cardService.blockCard(101L);
+
+        assertEquals(new BigDecimal("12.50"), dto.balance());
+    }
+
+    private static CardListItem listItem(long id, String last4, String balance, int balanceShards) {
+        return new SpelAwareProxyProjectionFactory().createProjection(CardListItem.class, Map.of(
+                "id", id,
+                "ownerId", 1L,
+                "last4", last4,
+                "status", CardStatus.ACTIVE,
+                "balance", new BigDecimal(balance),
+                "balanceShards", balanceShards));
+    }
+
+    private static PendingDelta pending(Long cardId, String delta) {
+        return new PendingDelta() {
+            @Override
+            public Long getCardId() {
+                return cardId;
+            }
+
+            @Override
+            public BigDecimal getDelta() {
+                return new BigDecimal(delta);
+            }
+        };
+    }
+
+    @Test
+    void transfer_toHotCard_creditsShardWithoutLockingRecipient() {
+        Card from = activeCard(101L, "10.00");
+        Card to = activeCard(102L, "0.00");
+        to.setBalanceShards(4);
+        when(hotCardRegistry.isHot(102L)).thenReturn(true);
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(to));
+        when(cardBalanceShardRepository.credit(eq(102L), anyInt(), eq(new BigDecimal("4.00")))).thenReturn(true);
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("4.00")));
+
+        assertEquals(new BigDecimal("6.00"), from.getBalance());
+        assertEquals(new BigDecimal("0.00"), to.getBalance());
+        verify(cardRepository, never()).findByIdAndOwnerIdForUpdate(eq(102L), any());
+        verify(cardRepository, never()).save(to);
+    }
+
+    @Test
+    void transfer_toHotCardWhoseShardsWereDrained_creditsRowAtomically() {
+        Card from = activeCard(101L, "10.00");
+        Card to = activeCard(102L, "0.00");
+        to.setBalanceShards(4);
+        when(hotCardRegistry.isHot(102L)).thenReturn(true);
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(to));
+        when(cardBalanceShardRepository.credit(eq(102L), anyInt(), any())).thenReturn(false);
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("4.00")));
+
+        assertEquals(new BigDecimal("6.00"), from.getBalance());
+        verify(cardRepository).creditBalance(102L, new BigDecimal("4.00"));
+        verify(cardRepository, never()).save(to);
+    }
+
+    @Test
+    void transfer_toCardStillListedHotAfterShardsRemoved_creditsRowAtomically() {
+        Card from = activeCard(101L, "10.00");
+        Card to = activeCard(102L, "0.00");
+        when(hotCardRegistry.isHot(102L)).thenReturn(true);
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerId(102L, 1L)).thenReturn(Optional.of(to));
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("4.00")));
+
+        verify(cardRepository).creditBalance(102L, new BigDecimal("4.00"));
+        verify(cardRepository, never()).save(to);
+        verify(cardBalanceShardRepository, never()).credit(any(), anyInt(), any());
+    }
+
+    @Test
+    void transfer_fromHotCard_countsShardsInAvailableBalance() {
+        Card from = activeCard(101L, "1.00");
+        from.setBalanceShards(4);
+        Card to = activeCard(102L, "0.00");
+        when(cardRepository.findByIdAndOwnerIdForUpdate(101L, 1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findByIdAndOwnerIdForUpdate(102L, 1L)).thenReturn(Optional.of(to));
+        when(cardBalanceShardRepository.sumByCardIds(List.of(101L))).thenReturn(Map.of(101L, new BigDecimal("9.00")));
+
+        cardService.transfer(1L, new TransferDto(101L, 102L, new BigDecimal("5.00")));
+
+        assertEquals(new BigDecimal("-4.00"), from.getBalance());
+        assertEquals(new BigDecimal("5.00"), to.getBalance());
+    }
+
+    @Test
+    void setHot_disable_foldsShardsIntoBalance() {
+        Card card = activeCard(101L, "-4.00");
+        card.setBalanceShards(4);
+        card.setCardNumber(cardCrypto.encrypt("4111111111111111"));
+        when(cardRepository.findByIdForUpdate(101L)).thenReturn(Optional.of(card));
+        when(cardRepository.save(card)).thenReturn(card);
+        when(cardBalanceShardRepository.drain(101L)).thenReturn(new BigDecimal("9.00"));
+
+        var dto = cardService.setHot(101L, false, 0);
+
+        assertEquals(new BigDecimal("5.00"), dto.balance());
+        assertEquals(0, card.getBalanceShards());
+        verify(cardBalanceShardRepository, never()).createShards(any(), anyInt());
+        verify(hotCardRegistry).updateAfterCommit(101L, false);
+    }
+
+    @Test
+    void setHot_rejectsInvalidShardCount() {
+        assertThatThrownBy(() -> cardService.setHot(101L, true, 65))
+                .isInstanceOf(InvalidCardSettingsException.class);
+        verifyNoInteractions(cardRepository);
+    }
 }
@@ -0,0 +1,180 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.service.CardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Параллельные переводы на настоящем PostgreSQL: потерянные обновления
+ * и перерасход исключаются блокировками строк ({@code SELECT ... FOR UPDATE})
+ * и версиями строк в транзакциях базы, а не заглушками. Нужен Docker;
+ * без него тест пропускается
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class CardTransferPostgresTest {
+
+    private static final long OWNER_ID = 5000L;
+    private static final int THREADS = 16;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    CardService cardService;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @BeforeEach
+    void createOwner() {
+        jdbc.update("""
+                INSERT INTO users (id, username, password, role) VALUES (?, 'concurrent', 'x', 'USER')
+                ON CONFLICT (id) DO NOTHING
+                """, OWNER_ID);
+    }
+
+    @Test
+    void concurrentRandomTransfers_preserveTotalBalance() throws Exception {
+        assertRandomTransfersPreserveTotal();
+    }
+
+    @Test
+    void concurrentDebitsFromOneCard_neverOverdraw() throws Exception {
+        assertDebitsNeverOverdraw();
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.card.transfer.mode=OPTIMISTIC")
+    class Optimistic {
+
+        @Test
+        void concurrentRandomTransfers_preserveTotalBalance() throws Exception {
+            assertRandomTransfersPreserveTotal();
+        }
+
+        @Test
+        void concurrentDebitsFromOneCard_neverOverdraw() throws Exception {
+            assertDebitsNeverOverdraw();
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.card.transfer.mode=ATOMIC")
+    class Atomic {
+
+        @Test
+        void concurrentRandomTransfers_preserveTotalBalance() throws Exception {
+            assertRandomTransfersPreserveTotal();
+        }
+
+        @Test
+        void concurrentDebitsFromOneCard_neverOverdraw() throws Exception {
+            assertDebitsNeverOverdraw();
+        }
+    }
+
+    private void assertRandomTransfersPreserveTotal() throws Exception {
+        long[] ids = {card("1000.00"), card("1000.00"), card("1000.00"), card("1000.00")};
+
+        runConcurrently(THREADS, 50, () -> {
+            var random = ThreadLocalRandom.current();
+            int from = random.nextInt(ids.length);
+            int to = (from + 1) % ids.length;
+            var amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+            try {
+                cardService.transfer(OWNER_ID, new TransferDto(ids[from], ids[to], amount));
+            } catch (InsufficientFundsException | TransferConflictException ignored) {
+            }
+        });
+
+        var total = BigDecimal.ZERO;
+        for (long id : ids) {
+            assertThat(balance(id).signum()).isGreaterThanOrEqualTo(0);
+            total = total.add(balance(id));
+        }
+        assertThat(total).isEqualByComparingTo("4000.00");
+    }
+
+    private void assertDebitsNeverOverdraw() throws Exception {
+        long from = card("20.00");
+        long to = card("0.00");
+        var succeeded = new AtomicInteger();
+
+        runConcurrently(THREADS, 4, () -> {
+            try {
+                cardService.transfer(OWNER_ID, new TransferDto(from, to, new BigDecimal("1.00")));
+                succeeded.incrementAndGet();
+            } catch (InsufficientFundsException | TransferConflictException ignored) {
+            }
+        });
+
+        assertThat(balance(from)).isEqualByComparingTo(BigDecimal.valueOf(20 - succeeded.get()));
+        assertThat(balance(to)).isEqualByComparingTo(BigDecimal.valueOf(succeeded.get()));
+        assertThat(balance(from).signum()).isGreaterThanOrEqualTo(0);
+    }
+
+    private long card(String balance) {
+        return jdbc.queryForObject("""
+                INSERT INTO cards (card_number, owner_id, expiration_date, status, balance, last4)
+                VALUES ('enc', ?, DATE '2030-01-01', 'ACTIVE', ?, '0000') RETURNING id
+                """, Long.class, OWNER_ID, new BigDecimal(balance));
+    }
+
+    private BigDecimal balance(long cardId) {
+        return jdbc.queryForObject("SELECT balance FROM cards WHERE id = ?", BigDecimal.class, cardId);
+    }
+
+    private static void runConcurrently(int threads, int iterations, Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    task.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(120, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
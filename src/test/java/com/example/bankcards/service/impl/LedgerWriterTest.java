@@ -0,0 +1,94 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionType;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class LedgerWriterTest {
+
+    private final List<List<Transaction>> batches = new CopyOnWriteArrayList<>();
+    private LedgerWriter ledgerWriter;
+
+    @BeforeEach
+    void setUp() {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        doAnswer(inv -> batches.add(new ArrayList<>(inv.<List<Transaction>>getArgument(0))))
+                .when(repository).insertAll(anyList());
+        ledgerWriter = new LedgerWriter(repository, new SimpleMeterRegistry(), 100, 20, 10_000);
+        ledgerWriter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void recordTransfer_writesDebitAndCreditInBoundedBatches() throws Exception {
+        for (long i = 0; i < 1000; i++) {
+            ledgerWriter.recordTransfer(1L, 2L, new BigDecimal("10.00"));
+        }
+        ledgerWriter.stop();
+
+        var entries = batches.stream().flatMap(List::stream).toList();
+        assertThat(entries).hasSize(2000);
+        assertThat(batches).allSatisfy(b -> assertThat(b.size()).isLessThanOrEqualTo(100));
+        assertThat(batches.size()).isLessThan(100);
+        assertThat(entries.get(0).getType()).isEqualTo(TransactionType.DEBIT);
+        assertThat(entries.get(0).getAmount()).isEqualByComparingTo("-10.00");
+        assertThat(entries.get(1).getType()).isEqualTo(TransactionType.CREDIT);
+        assertThat(entries.get(1).getTransferId()).isEqualTo(entries.get(0).getTransferId());
+    }
+
+    @Test
+    void recordTransfer_insideTransaction_onlyAfterCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        ledgerWriter.recordTransfer(1L, 2L, BigDecimal.ONE);
+        ledgerWriter.recordTransfer(2L, 1L, BigDecimal.ONE);
+        var rolledBack = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        rolledBack.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledgerWriter.recordTransfer(3L, 4L, BigDecimal.TEN);
+        var committed = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        committed.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        ledgerWriter.stop();
+
+        var entries = batches.stream().flatMap(List::stream).toList();
+        assertThat(rolledBack).hasSize(1);
+        assertThat(entries).extracting(Transaction::getCardId).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void appendPending_insertsUnsettledEntriesSynchronously() throws Exception {
+        ledgerWriter.appendPending(1L, 2L, new BigDecimal("3.00"));
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).extracting(Transaction::getCardId, Transaction::getAmount, Transaction::isSettled)
+                .containsExactly(
+                        tuple(1L, new BigDecimal("-3.00"), false),
+                        tuple(2L, new BigDecimal("3.00"), false));
+        ledgerWriter.stop();
+    }
+}
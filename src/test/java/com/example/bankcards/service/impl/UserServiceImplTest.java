@@ -8,6 +8,7 @@ import com.example.bankcards.exception.InvalidUserDataException;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.exception.UsernameAlreadyExistsException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenEpochs;
 import com.example.bankcards.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,13 +28,16 @@ class UserServiceImplTest {
     @Mock
     private PasswordEncoder passwordEncoder;
     @Mock
+    private TokenEpochs tokenEpochs;
+    @Mock
     private UserService userService;
 
     @BeforeEach
     void setUp() {
         userRepository = mock(UserRepository.class);
         passwordEncoder = mock(PasswordEncoder.class);
-        userService = new UserServiceImpl(userRepository, passwordEncoder);
+        tokenEpochs = mock(TokenEpochs.class);
+        userService = new UserServiceImpl(userRepository, passwordEncoder, tokenEpochs);
     }
 
     @Test
@@ -138,6 +142,8 @@ class UserServiceImplTest {
         verify(userRepository).existsByUsername("Alina");
         verify(passwordEncoder).encode("newpass");
         verify(userRepository).save(any(User.class));
+        verify(tokenEpochs).advanceAfterCommit(10L, 1);
+        assertThat(user.getTokenVersion()).isEqualTo(1);
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -179,9 +185,25 @@ class UserServiceImplTest {
         assertThat(user.getPassword()).isEqualTo("password");
         verify(userRepository).findById(10L);
         verify(userRepository).save(any(User.class));
+        verify(tokenEpochs).advanceAfterCommit(10L, 1);
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    void updateUserWithoutChanges_keepsTokens() {
+        var user = new User();
+        user.setId(10L);
+        user.setUsername("Anton");
+        user.setRole(Role.USER);
+        user.setPassword("password");
+        var dto = new CreateUserDto("Anton", null, Role.USER);
+        when(userRepository.findById(10L)).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+        userService.updateUser(10L, dto);
+        assertThat(user.getTokenVersion()).isZero();
+        verifyNoInteractions(tokenEpochs);
+    }
+
     @Test
     void updateUserWithUserNotFound() {
         var dto = new CreateUserDto("Anton", "password", Role.USER);
@@ -196,20 +218,25 @@ class UserServiceImplTest {
 
     @Test
     void deleteUser() {
-        when(userRepository.existsById(10L)).thenReturn(true);
+        var user = new User();
+        user.setId(10L);
+        user.setUsername("Anton");
+        when(userRepository.findById(10L)).thenReturn(Optional.of(user));
         userService.deleteUser(10L);
-        verify(userRepository).existsById(10L);
-        verify(userRepository).deleteById(10L);
+        verify(userRepository).findById(10L);
+        verify(userRepository).delete(user);
+        verify(tokenEpochs).revoke(10L);
         verifyNoMoreInteractions(userRepository);
     }
 
     @Test
     void deleteUserWithUserNotFound() {
-        when(userRepository.existsById(10L)).thenReturn(false);
+        when(userRepository.findById(10L)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> userService.deleteUser(10L))
         .isInstanceOf(UserNotFoundException.class)
                 .hasMessageContaining("Пользователь не найден");
-        verify(userRepository).existsById(10L);
+        verify(userRepository).findById(10L);
+        verifyNoInteractions(tokenEpochs);
         verifyNoMoreInteractions(userRepository);
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardCryptoTest {
+
+    private final CardCrypto cardCrypto = new CardCrypto("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+
+    @Test
+    void decrypt_readsValuesStoredByPreviousImplementation() {
+        assertThat(cardCrypto.decrypt("1bW51JJ3hJ1Yzuda:qmFhI7GJoTKCRB77mVUMWUGP6oGAgPvARvjbOAkVYuY="))
+                .isEqualTo("5555444433331111");
+    }
+
+    @Test
+    void encrypt_thenDecrypt_roundTripsAllLengths() {
+        for (String number : List.of("4111111111111111", "4111111111111111111", "5555 4444 3333 1111", "")) {
+            String stored = cardCrypto.encrypt(number);
+            assertThat(stored).matches("[A-Za-z0-9+/=]+:[A-Za-z0-9+/=]+");
+            assertThat(cardCrypto.decrypt(stored)).isEqualTo(number);
+        }
+    }
+
+    @Test
+    void decrypt_rejectsPlaintextAndTamperedValues() {
+        String stored = cardCrypto.encrypt("4111111111111111");
+        String tampered = stored.substring(0, stored.length() - 3) + (stored.endsWith("A==") ? "B==" : "A==");
+
+        assertThatThrownBy(() -> cardCrypto.decrypt("4111111111111111")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cardCrypto.decrypt("abc:d*e")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cardCrypto.decrypt(tampered)).isInstanceOf(IllegalStateException.class);
+        assertThat(cardCrypto.decrypt(stored)).isEqualTo("4111111111111111");
+    }
+
+    @Test
+    void decrypt_leavesNoPlaintextInPooledBuffers() throws Exception {
+        String stored = cardCrypto.encrypt("4111111111111111");
+        assertThat(cardCrypto.decrypt(stored)).isEqualTo("4111111111111111");
+        assertThatThrownBy(() -> cardCrypto.decrypt(stored.substring(0, stored.length() - 2) + "AA"))
+                .isInstanceOf(IllegalStateException.class);
+
+        Field workersField = CardCrypto.class.getDeclaredField("workers");
+        workersField.setAccessible(true);
+        Collection<?> workers = (Collection<?>) workersField.get(cardCrypto);
+        assertThat(workers).isNotEmpty();
+        for (Object worker : workers) {
+            for (String name : List.of("in", "out")) {
+                Field buffer = worker.getClass().getDeclaredField(name);
+                buffer.setAccessible(true);
+                assertThat((byte[]) buffer.get(worker)).containsOnly(0);
+            }
+        }
+    }
+
+    @Test
+    void decrypt_concurrentCallsDoNotShareState() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            String number = String.format("4000%012d", t);
+            String stored = cardCrypto.encrypt(number);
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    assertThat(cardCrypto.decrypt(stored)).isEqualTo(number);
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}